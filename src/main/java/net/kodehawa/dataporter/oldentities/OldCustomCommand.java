@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Getter
 public class OldCustomCommand implements ManagedObject {
@@ -30,14 +30,13 @@ public class OldCustomCommand implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).get(getId()).delete());
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-                .optArg("conflict", "replace")
-                .runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).insert(this)
+                .optArg("conflict", "replace"));
     }
 
     @JsonProperty("values")
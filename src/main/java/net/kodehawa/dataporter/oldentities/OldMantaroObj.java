@@ -8,7 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Data
 public class OldMantaroObj implements ManagedObject {
@@ -22,13 +22,12 @@ public class OldMantaroObj implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).get(getId()).delete());
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-                .optArg("conflict", "replace")
-                .runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).insert(this)
+                .optArg("conflict", "replace"));
     }
 }
@@ -16,7 +16,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 import static net.kodehawa.mantarobot.db.entities.helpers.Inventory.Resolver.serialize;
 import static net.kodehawa.mantarobot.db.entities.helpers.Inventory.Resolver.unserialize;
 
@@ -60,14 +60,13 @@ public class OldPlayer implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).get(getId()).delete());
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).insert(this)
+            .optArg("conflict", "replace"));
     }
 
     /**
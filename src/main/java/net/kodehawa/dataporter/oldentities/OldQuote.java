@@ -11,7 +11,7 @@ import net.kodehawa.mantarobot.db.ManagedObject;
 import java.beans.ConstructorProperties;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Getter
 public class OldQuote implements ManagedObject {
@@ -55,14 +55,13 @@ public class OldQuote implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).get(getId()).delete());
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-                .optArg("conflict", "replace")
-                .runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).insert(this)
+                .optArg("conflict", "replace"));
     }
 
     @JsonIgnore
@@ -13,7 +13,7 @@ import java.beans.ConstructorProperties;
 
 import static com.rethinkdb.RethinkDB.r;
 import static java.lang.System.currentTimeMillis;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Getter
 @ToString
@@ -36,14 +36,13 @@ public class OldUser implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).get(getId()).delete());
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-                .optArg("conflict", "replace")
-                .runNoReply(conn());
+        pool().runNoReply(r.table(DB_TABLE).insert(this)
+                .optArg("conflict", "replace"));
     }
 
     @JsonIgnore
@@ -1,32 +1,29 @@
 package net.kodehawa.lib.customfunc;
 
-import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.iterators.ArrayIterator;
-
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
-@Slf4j
 public class CustomFunc {
     private static Object EMPTY_ARRAY = new Object[0];
 
-    @SuppressWarnings("unchecked")
-    public static String embeddedEval(String string, Environiment env) {
-        StringBuilder builder = new StringBuilder();
-        int i;
-        while((i = string.indexOf("$")) != -1) {
-            builder.append(string.substring(0, i));
-
-            string = string.substring(i);
-            char[] array = string.toCharArray();
-
-            if(array.length > 1 && array[1] == '(') {
+    /**
+     * Compiles a custom command response. Use {@link Template#of(String)} instead, which only compiles each response once.
+     *
+     * @throws CustomFuncException if a function block is never closed.
+     */
+    public static Template compile(String string) {
+        List<Template.Node> nodes = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int length = string.length(), start = 0, i;
+        while((i = string.indexOf('$', start)) != -1) {
+            text.append(string, start, i);
+
+            if(i + 1 < length && string.charAt(i + 1) == '(') {
                 boolean valid = false;
-                i = 2;
-                for(; i < array.length; i++) {
-                    char c = array[i];
+                int j = i + 2;
+                for(; j < length; j++) {
+                    char c = string.charAt(j);
                     if(c == ')') {
                         valid = true;
                         break;
@@ -37,19 +34,18 @@ public class CustomFunc {
                 }
 
                 if(valid) {
-                    i++;
-                    String token = string.substring(2, i - 1);
-
-                    builder.append(env.containsResolvedToken(token) ? env.getResolvedToken(token) : token);
+                    flush(text, nodes);
+                    nodes.add(new Template.TokenText(string.substring(i + 2, j)));
+                    start = j + 1;
                 } else {
-                    builder.append("$(");
-                    i = 2;
+                    text.append("$(");
+                    start = i + 2;
                 }
             } else {
                 boolean valid = false;
-                i = 1;
-                for(; i < array.length; i++) {
-                    char c = array[i];
+                int j = i + 1;
+                for(; j < length; j++) {
+                    char c = string.charAt(j);
                     if(c == '{') {
                         valid = true;
                         break;
@@ -61,41 +57,37 @@ public class CustomFunc {
 
                 if(valid) {
                     int pCount = 0;
-                    i++;
+                    j++;
 
-                    for(; i < array.length; i++) {
-                        char c = array[i];
+                    for(; j < length; j++) {
+                        char c = string.charAt(j);
                         if(c == '{') pCount++;
                         if(c == '}') pCount--;
                         if(pCount == -1) break;
                     }
 
-                    i++;
-
-                    Object o = parseCode(string.substring(0, i), env);
-
-                    if(o instanceof Object[]) {
-                        o = new ArrayIterator<>(o);
-                    }
-
-                    if(o instanceof Iterator) {
-                        List<Object> objects = new LinkedList<>();
-                        ((Iterator<Object>) o).forEachRemaining(objects::add);
-                        o = objects;
-                    }
+                    if(pCount != -1) throw new CustomFuncException(
+                            "Unbalanced brackets near '" + near(string, j) + "'"
+                    );
 
-                    builder.append(o);
+                    flush(text, nodes);
+                    nodes.add(new Template.CallText(compileCall(string.substring(i, j + 1))));
+                    start = j + 1;
                 } else {
-                    builder.append("$");
-                    i = 1;
+                    text.append('$');
+                    start = i + 1;
                 }
             }
-            string = string.substring(i);
         }
 
-        builder.append(string);
+        text.append(string, start, length);
+        flush(text, nodes);
 
-        return builder.toString();
+        return new Template(nodes);
+    }
+
+    public static String embeddedEval(String string, Environiment env) {
+        return Template.of(string).eval(env);
     }
 
     public static char escape(char c) {
@@ -126,9 +118,12 @@ public class CustomFunc {
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static Object[] parseArgs(String args, Environiment env) {
-        List<Object> objects = new LinkedList<>();
+        return Template.evalArgs(compileArgs(args).toArray(new Template.Arg[0]), env);
+    }
+
+    static List<Template.Arg> compileArgs(String args) {
+        List<Template.Arg> objects = new ArrayList<>();
         char[] array = args.toCharArray();
         for(int i = 0; i < array.length; i++) {
             char c = array[i];
@@ -180,13 +175,7 @@ public class CustomFunc {
                         "Unbalanced brackets near '" + near(args, i) + "'"
                 );
 
-                Object result = parseCode(functionBlock.toString(), env);
-
-                if(result instanceof Iterator) {
-                    ((Iterator) result).forEachRemaining(objects::add);
-                } else {
-                    objects.add(result);
-                }
+                objects.add(new Template.CallArg(compileCall(functionBlock.toString())));
                 //endregion
             } else if(c == '[') {
                 //region OPERATION [...]
@@ -210,9 +199,9 @@ public class CustomFunc {
                 String block = functionBlock.toString().trim();
 
                 if(block.isEmpty()) {
-                    objects.add(EMPTY_ARRAY);
+                    objects.add(new Template.Value(EMPTY_ARRAY));
                 } else {
-                    objects.add(parseArgs(block, env));
+                    objects.add(new Template.ArrayArg(compileArgs(block)));
                 }
                 //endregion
             } else if(c == '"' || c == '\'') {
@@ -248,7 +237,7 @@ public class CustomFunc {
                 if(invalid) throw new CustomFuncException(
                         "Unclosed quote near '" + near(args, i) + "'");
 
-                objects.add(s.toString());
+                objects.add(new Template.Value(s.toString()));
                 i++;
                 //endregion
             } else if(Character.isDigit(c) || c == '#' || c == '-') {
@@ -276,10 +265,10 @@ public class CustomFunc {
                 i++;
 
                 try {
-                    objects.add(Long.decode(number));
+                    objects.add(new Template.Value(Long.decode(number)));
                 } catch(NumberFormatException e) {
                     try {
-                        objects.add(Double.valueOf(number));
+                        objects.add(new Template.Value(Double.valueOf(number)));
                     } catch(NumberFormatException e2) {
                         throw new CustomFuncException(
                                 "'" + number + "' is not a valid number near '" + near(args, i) + "'"
@@ -313,7 +302,7 @@ public class CustomFunc {
                 }
 
                 String block = name.toString();
-                objects.add(env.containsResolvedToken(block) ? env.getResolvedToken(block) : new Token(block));
+                objects.add(new Template.TokenArg(block));
             } else {
                 throw new CustomFuncException("Invalid character '" + c + "' near '" + near(args, i) + "'");
             }
@@ -335,10 +324,14 @@ public class CustomFunc {
             }
         }
 
-        return objects.toArray();
+        return objects;
     }
 
     public static Object parseCode(String code, Environiment env) {
+        return compileCall(code).run(env);
+    }
+
+    static Template.Call compileCall(String code) {
         if(!code.startsWith("$")) throw new IllegalStateException("Must begin with $");
         if(!code.endsWith("}")) throw new IllegalStateException("Must end with }");
         if(!code.contains("{")) throw new IllegalStateException("Must have {");
@@ -347,20 +340,19 @@ public class CustomFunc {
 
         String functionName = code.substring(1, indexOf);
 
-        if(!env.containsFunction(functionName)) return "`" + functionName + " isn't a function`";
-        CustomFunction f = env.getFunction(functionName);
-
         try {
-            return f.run(parseArgs(code.substring(indexOf + 1, code.length() - 1), env));
-        } catch(CustomFuncException cfe) {
-            return "Error on `" + functionName + "`:" + cfe.getMessage();
-        } catch(Exception e) {
-            String errorCode = String.valueOf((Long.hashCode(System.currentTimeMillis()) ^ code.hashCode()));
-            log.error("Error on CustomFunc (Error Code: `" + errorCode + "`):", e);
-            return "Unladen Error `" + errorCode + "` on `" + functionName + "`. Report to Devs.";
+            return new Template.Call(code, functionName, compileArgs(code.substring(indexOf + 1, code.length() - 1)), null);
+        } catch(RuntimeException e) {
+            return new Template.Call(code, functionName, null, e);
         }
     }
 
+    private static void flush(StringBuilder text, List<Template.Node> nodes) {
+        if(text.length() == 0) return;
+        nodes.add(new Template.Text(text.toString()));
+        text.setLength(0);
+    }
+
     private static String near(String string, int i) {
         int bot = i - 9, top = i + 9;
         int nBot = Math.max(0, bot), nTop = Math.min(string.length(), top);
@@ -0,0 +1,228 @@
+package net.kodehawa.lib.customfunc;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.iterators.ArrayIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A custom command response, compiled by {@link CustomFunc#compile(String)} into plain text, tokens and function calls.
+ * <p>
+ * Templates are immutable and don't depend on the {@link Environiment}, so the same one can be evaluated any amount of times, from any
+ * thread. {@link #of(String)} keeps the compiled templates by content, so a response only gets parsed the first time it's used.
+ */
+@Slf4j
+public class Template {
+    //Big enough for the responses that are actually being used, the rest just get compiled again.
+    private static final int CACHE_SIZE = 10000, CACHE_IDLE_MINUTES = 60, MAX_BUILDER_CAPACITY = 16384;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+    private static final Cache<String, Template> CACHE = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_SIZE)
+        .expireAfterAccess(CACHE_IDLE_MINUTES, TimeUnit.MINUTES)
+        .build();
+    private final Node[] nodes;
+
+    Template(List<Node> nodes) {
+        this.nodes = nodes.toArray(new Node[0]);
+    }
+
+    /**
+     * @param source the response to compile.
+     * @return the compiled response, from the cache if it was compiled before.
+     * @throws CustomFuncException if the response can't be compiled.
+     */
+    public static Template of(String source) {
+        try {
+            return CACHE.get(source, () -> CustomFunc.compile(source));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new CustomFuncException(e.getCause());
+        }
+    }
+
+    /**
+     * Drops the compiled versions of these responses, for when they get changed or removed.
+     *
+     * @param sources the responses, can be null.
+     */
+    public static void invalidate(Collection<String> sources) {
+        if (sources != null) CACHE.invalidateAll(sources);
+    }
+
+    static Object[] evalArgs(Arg[] args, Environiment env) {
+        List<Object> objects = new ArrayList<>(args.length);
+        for (Arg arg : args) arg.eval(env, objects);
+        return objects.toArray();
+    }
+
+    public String eval(Environiment env) {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        for (Node node : nodes) node.append(builder, env);
+        String result = builder.toString();
+
+        //Don't keep a huge buffer around because of a single long response.
+        if (builder.capacity() > MAX_BUILDER_CAPACITY) BUILDER.remove();
+        return result;
+    }
+
+    interface Node {
+        void append(StringBuilder builder, Environiment env);
+    }
+
+    interface Arg {
+        void eval(Environiment env, List<Object> objects);
+    }
+
+    static class Text implements Node {
+        private final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void append(StringBuilder builder, Environiment env) {
+            builder.append(text);
+        }
+    }
+
+    //$(token)
+    static class TokenText implements Node {
+        private final String token;
+
+        TokenText(String token) {
+            this.token = token;
+        }
+
+        @Override
+        public void append(StringBuilder builder, Environiment env) {
+            builder.append(env.containsResolvedToken(token) ? env.getResolvedToken(token) : token);
+        }
+    }
+
+    //$function{...}
+    static class CallText implements Node {
+        private final Call call;
+
+        CallText(Call call) {
+            this.call = call;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void append(StringBuilder builder, Environiment env) {
+            Object o = call.run(env);
+
+            if (o instanceof Object[]) {
+                o = new ArrayIterator<>(o);
+            }
+
+            if (o instanceof Iterator) {
+                List<Object> objects = new ArrayList<>();
+                ((Iterator<Object>) o).forEachRemaining(objects::add);
+                o = objects;
+            }
+
+            builder.append(o);
+        }
+    }
+
+    static class Value implements Arg {
+        private final Object value;
+
+        Value(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public void eval(Environiment env, List<Object> objects) {
+            objects.add(value);
+        }
+    }
+
+    static class TokenArg implements Arg {
+        private final String token;
+
+        TokenArg(String token) {
+            this.token = token;
+        }
+
+        @Override
+        public void eval(Environiment env, List<Object> objects) {
+            objects.add(env.containsResolvedToken(token) ? env.getResolvedToken(token) : new Token(token));
+        }
+    }
+
+    //[...]
+    static class ArrayArg implements Arg {
+        private final Arg[] items;
+
+        ArrayArg(List<Arg> items) {
+            this.items = items.toArray(new Arg[0]);
+        }
+
+        @Override
+        public void eval(Environiment env, List<Object> objects) {
+            objects.add(evalArgs(items, env));
+        }
+    }
+
+    static class CallArg implements Arg {
+        private final Call call;
+
+        CallArg(Call call) {
+            this.call = call;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void eval(Environiment env, List<Object> objects) {
+            Object result = call.run(env);
+
+            if (result instanceof Iterator) {
+                ((Iterator<Object>) result).forEachRemaining(objects::add);
+            } else {
+                objects.add(result);
+            }
+        }
+    }
+
+    static class Call {
+        private final Arg[] args;
+        private final String code, functionName;
+        //Arguments that couldn't be parsed only fail when the function gets called, same as if they were parsed every time.
+        private final RuntimeException failure;
+
+        Call(String code, String functionName, List<Arg> args, RuntimeException failure) {
+            this.code = code;
+            this.functionName = functionName;
+            this.args = args == null ? null : args.toArray(new Arg[0]);
+            this.failure = failure;
+        }
+
+        Object run(Environiment env) {
+            if (!env.containsFunction(functionName)) return "`" + functionName + " isn't a function`";
+            CustomFunction f = env.getFunction(functionName);
+
+            try {
+                if (failure != null) throw failure;
+                return f.run(evalArgs(args, env));
+            } catch (CustomFuncException cfe) {
+                return "Error on `" + functionName + "`:" + cfe.getMessage();
+            } catch (Exception e) {
+                String errorCode = String.valueOf((Long.hashCode(System.currentTimeMillis()) ^ code.hashCode()));
+                log.error("Error on CustomFunc (Error Code: `" + errorCode + "`):", e);
+                return "Unladen Error `" + errorCode + "` on `" + functionName + "`. Report to Devs.";
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ import net.kodehawa.mantarobot.core.LoadState;
 import net.kodehawa.mantarobot.core.listeners.command.CommandListener;
 import net.kodehawa.mantarobot.data.Config;
 import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.ChangefeedWatcher;
 import net.kodehawa.mantarobot.log.LogBack;
 import net.kodehawa.mantarobot.log.LogUtils;
 import net.kodehawa.mantarobot.log.SimpleLogToSLF4JAdapter;
@@ -31,6 +32,7 @@ import net.kodehawa.mantarobot.utils.CompactPrintStream;
 import net.kodehawa.mantarobot.utils.SentryHelper;
 import net.kodehawa.mantarobot.utils.banner.BannerPrinter;
 import net.kodehawa.mantarobot.utils.data.ConnectionWatcherDataManager;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import net.kodehawa.mantarobot.utils.rmq.RabbitMQDataManager;
 import net.kodehawa.mantarobot.web.MantaroAPI;
 import net.kodehawa.mantarobot.web.MantaroAPISender;
@@ -177,6 +179,12 @@ public class MantaroBot extends ShardedJDA {
                         .getTypesAnnotatedWith(Option.class)
         );
 
+        //Custom command and quote lookups go through these.
+        MantaroData.db().createIndexes();
+
+        //Custom prefixes are looked up guild by guild as messages come in, this keeps the ones already known up to date.
+        MantaroData.db().setPrefixListener(CommandListener.PROCESSOR.getPrefixMatcher());
+
         loadState = LOADING;
 
         shardedMantaro = new ShardedBuilder()
@@ -193,6 +201,7 @@ public class MantaroBot extends ShardedJDA {
 
         audioManager = new MantaroAudioManager();
         tempBanManager = new TempBanManager(MantaroData.db().getMantaroData().getTempBans());
+        new ChangefeedWatcher(MantaroData.db()).start();
 
         MantaroData.config().save();
 
@@ -221,6 +230,9 @@ public class MantaroBot extends ShardedJDA {
         loadState = POSTLOAD;
         System.out.println("Finished loading basic components. Current status: " + loadState);
 
+        //The shards got ready before this point, so their ready events didn't restore anything.
+        for(MantaroShard shard : shardedMantaro.getShards()) audioManager.getQueueStore().restore(shard.getJDA());
+
         bus.post(new PostLoadEvent());
         bus1.post(new OptionRegistryEvent());
         long end = System.currentTimeMillis();
@@ -320,7 +332,6 @@ public class MantaroBot extends ShardedJDA {
 
     private void sendSignal() {
         try {
-            OkHttpClient okHttpClient = new OkHttpClient.Builder().build();
             RequestBody body = RequestBody.create(
                     MediaType.parse("application/json; charset=utf-8"),
                     String.format("{\"content\": \"**Received startup trigger on Node #%d (`Identifier: %s`)**\"}", mantaroAPI.nodeId, mantaroAPI.nodeUniqueIdentifier)
@@ -330,7 +341,7 @@ public class MantaroBot extends ShardedJDA {
                     .post(body)
                     .build();
 
-            Response response = okHttpClient.newCall(request).execute();
+            Response response = HTTPRequester.PARENT.newCall(request).execute();
             response.close();
         } catch(Exception e) {
         }
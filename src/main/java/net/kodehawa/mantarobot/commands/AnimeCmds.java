@@ -20,6 +20,7 @@ import net.kodehawa.mantarobot.utils.SentryHelper;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 import net.kodehawa.mantarobot.utils.data.GsonDataManager;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONObject;
@@ -33,7 +34,6 @@ import java.util.stream.Collectors;
 @Module
 public class AnimeCmds {
     public static String authToken;
-    private static OkHttpClient client = new OkHttpClient();
 
     @Subscribe
     public void anime(CommandRegistry cr) {
@@ -42,7 +42,7 @@ public class AnimeCmds {
             public void call(GuildMessageReceivedEvent event, String content, String[] args) {
                 try {
                     String connection = String.format("https://anilist.co/api/anime/search/%1s?access_token=%2s", URLEncoder.encode(content, "UTF-8"), authToken);
-                    String json = Utils.wget(connection, event);
+                    String json = Utils.wgetCached(connection, event);
                     AnimeData[] type = GsonDataManager.GSON_PRETTY.fromJson(json, AnimeData[].class);
 
                     if(type.length == 1) {
@@ -101,7 +101,7 @@ public class AnimeCmds {
                     .url(aniList)
                     .post(body)
                     .build();
-            Response response = client.newCall(request).execute();
+            Response response = HTTPRequester.PARENT.newCall(request).execute();
             JSONObject object = new JSONObject(response.body().string());
             authToken = object.getString("access_token");
             response.close();
@@ -118,7 +118,7 @@ public class AnimeCmds {
             public void call(GuildMessageReceivedEvent event, String content, String[] args) {
                 try {
                     String url = String.format("https://anilist.co/api/character/search/%1s?access_token=%2s", URLEncoder.encode(content, "UTF-8"), authToken);
-                    String json = Utils.wget(url, event);
+                    String json = Utils.wgetCached(url, event);
                     CharacterData[] character = GsonDataManager.GSON_PRETTY.fromJson(json, CharacterData[].class);
 
                     if(character.length == 1) {
@@ -613,8 +613,13 @@ public class CurrencyCmds {
                     event.getChannel().sendMessage(EmoteReference.ERROR + "Don't do that.").queue();
                     return;
                 }
+                //Taken first, as it can still fail if the money was spent somewhere else in the meantime.
+                if (!transferPlayer.removeMoney(toSend)) {
+                    event.getChannel().sendMessage(EmoteReference.ERROR + "You cannot transfer money you don't have.").queue();
+                    return;
+                }
+
                 if (toTransfer.addMoney(toSend)) {
-                    transferPlayer.removeMoney(toSend);
                     transferPlayer.saveAsync();
                     toTransfer.saveAsync();
 
@@ -627,6 +632,9 @@ public class CurrencyCmds {
                             .getMentionedUsers().get(0).getName() + "* successfully.").queue();
                 }
                 else {
+                    //Give it back, it never made it to the other user.
+                    transferPlayer.addMoney(toSend);
+                    transferPlayer.saveAsync();
                     event.getChannel().sendMessage(EmoteReference.ERROR + "Don't do that.").queue();
                 }
             }
@@ -11,10 +11,12 @@ import net.kodehawa.lib.customfunc.CustomFunc;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.currency.TextChannelGround;
 import net.kodehawa.mantarobot.commands.custom.ConditionalCustoms;
+import net.kodehawa.mantarobot.commands.custom.CustomCommandRegistry;
 import net.kodehawa.mantarobot.commands.custom.EmbedJSON;
 import net.kodehawa.mantarobot.core.listeners.operations.old.InteractiveOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.old.OperationListener;
 import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.PooledCursor;
 import net.kodehawa.mantarobot.db.entities.CustomCommand;
 import net.kodehawa.mantarobot.modules.CommandRegistry;
 import net.kodehawa.mantarobot.modules.Module;
@@ -31,13 +33,12 @@ import org.apache.commons.lang3.tuple.Pair;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import static br.com.brjdevs.java.utils.collections.CollectionUtils.random;
 import static net.kodehawa.mantarobot.commands.info.CommandStatsManager.log;
 import static net.kodehawa.mantarobot.commands.info.HelpUtils.forType;
 import static net.kodehawa.mantarobot.core.listeners.command.CommandListener.PROCESSOR;
@@ -47,10 +48,11 @@ import static net.kodehawa.mantarobot.utils.StringUtils.SPLIT_PATTERN;
 @Slf4j
 @Module
 public class CustomCmds {
-    private final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_]+"),
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_]+"),
         INVALID_CHARACTERS_PATTERN = Pattern.compile("[^a-zA-Z0-9_]"),
         NAME_WILDCARD_PATTERN = Pattern.compile("[a-zA-Z0-9_*]+");
-    private static Map<String, List<String>> customCommands = new ConcurrentHashMap<>();
+    private static final int MAX_IMPORT_RESULTS = 50;
+    private static final CustomCommandRegistry customCommands = new CustomCommandRegistry(CustomCmds::load);
     private final net.kodehawa.mantarobot.modules.commands.base.Command customCommand = new AbstractCommand(null) {
         @Override
         public MessageEmbed help(GuildMessageReceivedEvent event) {
@@ -58,11 +60,11 @@ public class CustomCmds {
         }
 
         private void handle(String cmdName, GuildMessageReceivedEvent event) {
-            List<String> values = customCommands.get(event.getGuild().getId() + ":" + cmdName);
+            String[] values = customCommands.get(event.getGuild().getIdLong(), cmdName);
 
             if (values == null) return;
 
-            String response = CustomFunc.embeddedEval(random(values), ConditionalCustoms.genEnv(event));
+            String response = CustomFunc.embeddedEval(values[ThreadLocalRandom.current().nextInt(values.length)], ConditionalCustoms.genEnv(event));
 
 
             int c = response.indexOf(':');
@@ -146,11 +148,7 @@ public class CustomCmds {
                 String action = args[0];
 
                 if (action.equals("list") || action.equals("ls")) {
-                    String filter = event.getGuild().getId() + ":";
-                    List<String> commands = customCommands.keySet().stream()
-                        .filter(s -> s.startsWith(filter))
-                        .map(s -> s.substring(filter.length()))
-                        .collect(Collectors.toList());
+                    List<String> commands = new ArrayList<>(customCommands.names(event.getGuild().getIdLong()));
 
                     EmbedBuilder builder = new EmbedBuilder()
                         .setAuthor("Commands for this guild", null, event.getGuild().getIconUrl())
@@ -183,7 +181,7 @@ public class CustomCmds {
                     }
                     int size = customCommands.size();
                     customCommands.forEach(CustomCommand::deleteAsync);
-                    customCommands.forEach(c -> CustomCmds.customCommands.remove(c.getId()));
+                    customCommands.forEach(CustomCmds.customCommands::remove);
                     event.getChannel().sendMessage(EmoteReference.PENCIL + "Cleared **" + size + " Custom Commands**!")
                         .queue();
                     return;
@@ -233,9 +231,7 @@ public class CustomCmds {
                                     return OperationListener.RESET_TIMEOUT;
                                 }
 
-                                if (PROCESSOR.commands().containsKey(
-                                    saveTo) && !PROCESSOR.commands().get(saveTo).equals(
-                                    customCommand)) {
+                                if (PROCESSOR.commands().containsKey(saveTo)) {
                                     event.getChannel().sendMessage(
                                         EmoteReference.ERROR + "A command already exists with this name!").queue();
                                     return OperationListener.RESET_TIMEOUT;
@@ -254,10 +250,7 @@ public class CustomCmds {
                                     custom.saveAsync();
 
                                     //reflect at local
-                                    customCommands.put(custom.getId(), custom.values());
-
-                                    //add mini-hack
-                                    PROCESSOR.commands().put(cmd, customCommand);
+                                    customCommands.put(custom);
 
                                     event.getChannel().sendMessage(
                                         EmoteReference.CORRECT + "Saved to command ``" + cmd + "``!").queue();
@@ -303,11 +296,7 @@ public class CustomCmds {
                     custom.deleteAsync();
 
                     //reflect at local
-                    customCommands.remove(custom.getId());
-
-                    //clear commands if none
-                    if (customCommands.keySet().stream().noneMatch(s -> s.endsWith(":" + cmd)))
-                        PROCESSOR.commands().remove(cmd);
+                    customCommands.remove(custom);
 
                     event.getChannel().sendMessage(EmoteReference.PENCIL + "Removed Custom Command ``" + cmd + "``!")
                         .queue();
@@ -348,14 +337,16 @@ public class CustomCmds {
                     Map<String, Guild> mapped = MantaroBot.getInstance().getMutualGuilds(event.getAuthor()).stream()
                         .collect(Collectors.toMap(ISnowflake::getId, g -> g));
 
-                    List<Pair<Guild, CustomCommand>> filtered = MantaroData.db()
-                        .getCustomCommandsByName(("*" + cmd + "*").replace("*", any)).stream()
-                        .map(customCommand -> {
+                    //Only read as many results as the selection embed can show.
+                    List<Pair<Guild, CustomCommand>> filtered = new ArrayList<>();
+                    try (PooledCursor<CustomCommand> results = MantaroData.db()
+                        .searchCustomCommands(mapped.keySet(), "^" + ("*" + cmd + "*").replace("*", any) + "$")) {
+                        for (CustomCommand customCommand : results) {
                             Guild guild = mapped.get(customCommand.getGuildId());
-                            return guild == null ? null : Pair.of(guild, customCommand);
-                        })
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
+                            if (guild != null) filtered.add(Pair.of(guild, customCommand));
+                            if (filtered.size() >= MAX_IMPORT_RESULTS) break;
+                        }
+                    }
 
                     if (filtered.size() == 0) {
                         event.getChannel().sendMessage(
@@ -379,7 +370,7 @@ public class CustomCmds {
                             custom.saveAsync();
 
                             //reflect at local
-                            customCommands.put(custom.getId(), custom.values());
+                            customCommands.put(custom);
 
                             event.getChannel().sendMessage(String
                                 .format("Imported custom command ``%s`` from guild `%s` with responses ``%s``",
@@ -408,8 +399,7 @@ public class CustomCmds {
                         return;
                     }
 
-                    if (PROCESSOR.commands().containsKey(value) && !PROCESSOR.commands()
-                        .get(value).equals(customCommand)) {
+                    if (PROCESSOR.commands().containsKey(value)) {
                         event.getChannel().sendMessage(
                             EmoteReference.ERROR + "A command already exists with this name!").queue();
                         return;
@@ -430,15 +420,8 @@ public class CustomCmds {
                     newCustom.saveAsync();
 
                     //reflect at local
-                    customCommands.remove(oldCustom.getId());
-                    customCommands.put(newCustom.getId(), newCustom.values());
-
-                    //add mini-hack
-                    PROCESSOR.commands().put(cmd, customCommand);
-
-                    //clear commands if none
-                    if (customCommands.keySet().stream().noneMatch(s -> s.endsWith(":" + cmd)))
-                        PROCESSOR.commands().remove(cmd);
+                    customCommands.remove(oldCustom);
+                    customCommands.put(newCustom);
 
                     event.getChannel().sendMessage(
                         EmoteReference.CORRECT + "Renamed command ``" + cmd + "`` to ``" + value + "``!").queue();
@@ -460,7 +443,7 @@ public class CustomCmds {
                         return;
                     }
 
-                    if (PROCESSOR.commands().containsKey(cmd) && PROCESSOR.commands().get(cmd) != customCommand) {
+                    if (PROCESSOR.commands().containsKey(cmd)) {
                         event.getChannel().sendMessage(
                             EmoteReference.ERROR + "A command already exists with this name!").queue();
                         return;
@@ -482,10 +465,7 @@ public class CustomCmds {
                     custom.saveAsync();
 
                     //reflect at local
-                    customCommands.put(custom.getId(), custom.values());
-
-                    //add mini-hack
-                    PROCESSOR.commands().put(cmd, customCommand);
+                    customCommands.put(custom);
 
                     event.getChannel().sendMessage(EmoteReference.CORRECT + "Saved to command ``" + cmd + "``!")
                         .queue();
@@ -526,26 +506,33 @@ public class CustomCmds {
 
     @Subscribe
     public void onPostLoad(PostLoadEvent e) {
-        db().getCustomCommands().forEach(custom -> {
+        //Custom commands aren't in the command map, as they only exist in their guild.
+        PROCESSOR.setCustomCommandResolver((guildId, name) -> customCommands.get(guildId, name) == null ? null : customCommand);
+    }
+
+    private static List<CustomCommand> load(long guildId) {
+        List<CustomCommand> commands = db().getCustomCommands(String.valueOf(guildId));
+        for (ListIterator<CustomCommand> iterator = commands.listIterator(); iterator.hasNext(); ) {
+            CustomCommand custom = iterator.next();
+
             if (!NAME_PATTERN.matcher(custom.getCommandName()).matches()) {
                 String newName = INVALID_CHARACTERS_PATTERN.matcher(custom.getCommandName()).replaceAll("_");
-                log.info("Custom Command with Invalid Characters '%s' found. Replacing with '%'", custom.getCommandName());
+                log.info("Custom Command with Invalid Characters '{}' found. Replacing with '{}'", custom.getCommandName(), newName);
 
                 custom.deleteAsync();
                 custom = custom.rename(newName);
                 custom.saveAsync();
             }
 
-            if (PROCESSOR.commands().containsKey(custom.getCommandName()) && PROCESSOR.commands().get(custom.getCommandName()) != customCommand) {
+            if (PROCESSOR.commands().containsKey(custom.getCommandName())) {
                 custom.deleteAsync();
                 custom = custom.rename("_" + custom.getCommandName());
                 custom.saveAsync();
             }
 
-            //add mini-hack
-            PROCESSOR.commands().put(custom.getCommandName(), customCommand);
+            iterator.set(custom);
+        }
 
-            customCommands.put(custom.getId(), custom.values());
-        });
+        return commands;
     }
 }
@@ -2,7 +2,6 @@ package net.kodehawa.mantarobot.commands;
 
 import com.google.common.eventbus.Subscribe;
 import com.rethinkdb.RethinkDB;
-import com.rethinkdb.net.Cursor;
 import com.sedmelluq.discord.lavaplayer.tools.PlayerLibrary;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.JDAInfo;
@@ -18,6 +17,7 @@ import net.kodehawa.mantarobot.core.CommandProcessorAndRegistry;
 import net.kodehawa.mantarobot.core.listeners.MantaroListener;
 import net.kodehawa.mantarobot.core.listeners.command.CommandListener;
 import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.PooledCursor;
 import net.kodehawa.mantarobot.modules.CommandRegistry;
 import net.kodehawa.mantarobot.modules.Module;
 import net.kodehawa.mantarobot.modules.commands.SimpleCommand;
@@ -48,17 +48,15 @@ public class DebugCmds {
                 int c = (int) vc.stream().filter(voiceChannel -> voiceChannel.getMembers().contains(
                         voiceChannel.getGuild().getSelfMember())).count();
 
-                Cursor<HashMap> o =
-                        RethinkDB.r.db("rethinkdb")
-                                .table("server_status")
-                                .run(MantaroData.conn());
-
                 String cacheSizeMB;
                 String rethonkVersion;
                 String hostName;
                 String timeConnected;
 
-                HashMap save = o.next();
+                HashMap save;
+                try (PooledCursor<HashMap> o = MantaroData.pool().run(RethinkDB.r.db("rethinkdb").table("server_status"))) {
+                    save = o.next();
+                }
 
                 HashMap process = (HashMap) save.get("process");
                 HashMap network = (HashMap) save.get("network");
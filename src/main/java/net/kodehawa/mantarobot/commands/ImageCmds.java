@@ -23,7 +23,7 @@ import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.cache.URLCache;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 import net.kodehawa.mantarobot.utils.data.GsonDataManager;
-import okhttp3.OkHttpClient;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.apache.commons.collections4.BidiMap;
@@ -43,7 +43,7 @@ import java.util.stream.Collectors;
 @Module
 public class ImageCmds {
 
-	private final URLCache CACHE = new URLCache(20);
+	private final URLCache CACHE = URLCache.DEFAULT;
 	private  final String BASEURL = "http://catgirls.brussell98.tk/api/random";
 	private  final String NSFWURL = "http://catgirls.brussell98.tk/api/nsfw/random"; //this actually returns more questionable images than explicit tho
 	private static final String[] responses = {"Aww, take a cat.", "%mention%, are you sad? ;w;, take a cat!", "You should all have a cat in your life, but a image will do.",
@@ -65,8 +65,6 @@ public class ImageCmds {
     @Subscribe
     public void cat(CommandRegistry cr) {
         cr.register("cat", new SimpleCommand(Category.IMAGE) {
-            OkHttpClient httpClient = new OkHttpClient();
-
             @Override
             protected void call(GuildMessageReceivedEvent event, String content, String[] args) {
                 try {
@@ -74,11 +72,11 @@ public class ImageCmds {
                             .url("http://random.cat/meow")
                             .build();
 
-                    Response response = httpClient.newCall(r).execute();
+                    Response response = HTTPRequester.PARENT.newCall(r).execute();
 
                     String url = new JSONObject(response.body().string()).getString("file");
                     response.close();
-                    event.getChannel().sendFile(CACHE.getFile(url), "cat.jpg",
+                    event.getChannel().sendFile(CACHE.getInput(url), "cat.jpg",
                             new MessageBuilder().append(CollectionUtils.random(responses).replace("%mention%", event.getAuthor().getAsMention())).build()).queue();
                 } catch(Exception e) {
                     event.getChannel().sendMessage(EmoteReference.ERROR + "Error retrieving cute cat images :<").queue();
@@ -540,7 +538,7 @@ public class ImageCmds {
         if(!nsfwCheck(event, false, false))
             return builder.setDescription("Cannot send a lewd image in a non-nsfw channel.");
 
-        String json = Utils.wget(url, event);
+        String json = Utils.wgetCached(url, event);
         try {
             YandereImageData[] imageData = GsonDataManager.GSON_PRETTY.fromJson(json, YandereImageData[].class);
             List<YandereImageData> filter = new ArrayList<>(Arrays.asList(imageData)).stream().filter(data -> rating.equals(data.rating)).collect(Collectors.toList());
@@ -22,6 +22,7 @@ import net.kodehawa.mantarobot.modules.commands.CommandPermission;
 import net.kodehawa.mantarobot.modules.commands.SimpleCommand;
 import net.kodehawa.mantarobot.modules.commands.base.Category;
 import net.kodehawa.mantarobot.modules.commands.base.Command;
+import net.kodehawa.mantarobot.utils.SlidingWindowCounter.Window;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
@@ -393,32 +394,32 @@ public class InfoCmds {
                     if (args.length > 1) {
                         String what = args[1];
                         if (what.equals("total")) {
-                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.TOTAL_CMDS, baseEmbed(event, "Command Stats | Total")).build()).queue();
+                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.getCommands(Window.TOTAL), baseEmbed(event, "Command Stats | Total")).build()).queue();
                             return;
                         }
 
                         if (what.equals("daily")) {
-                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.DAY_CMDS, baseEmbed(event, "Command Stats | Daily")).build()).queue();
+                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.getCommands(Window.DAY), baseEmbed(event, "Command Stats | Daily")).build()).queue();
                             return;
                         }
 
                         if (what.equals("hourly")) {
-                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.HOUR_CMDS, baseEmbed(event, "Command Stats | Hourly")).build()).queue();
+                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.getCommands(Window.HOUR), baseEmbed(event, "Command Stats | Hourly")).build()).queue();
                             return;
                         }
 
                         if (what.equals("now")) {
-                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.MINUTE_CMDS, baseEmbed(event, "Command Stats | Now")).build()).queue();
+                            event.getChannel().sendMessage(CommandStatsManager.fillEmbed(CommandStatsManager.getCommands(Window.MINUTE), baseEmbed(event, "Command Stats | Now")).build()).queue();
                             return;
                         }
                     }
 
                     //Default
                     event.getChannel().sendMessage(baseEmbed(event, "Command Stats")
-                        .addField("Now", CommandStatsManager.resume(CommandStatsManager.MINUTE_CMDS), false)
-                        .addField("Hourly", CommandStatsManager.resume(CommandStatsManager.HOUR_CMDS), false)
-                        .addField("Daily", CommandStatsManager.resume(CommandStatsManager.DAY_CMDS), false)
-                        .addField("Total", CommandStatsManager.resume(CommandStatsManager.TOTAL_CMDS), false)
+                        .addField("Now", CommandStatsManager.resume(CommandStatsManager.getCommands(Window.MINUTE)), false)
+                        .addField("Hourly", CommandStatsManager.resume(CommandStatsManager.getCommands(Window.HOUR)), false)
+                        .addField("Daily", CommandStatsManager.resume(CommandStatsManager.getCommands(Window.DAY)), false)
+                        .addField("Total", CommandStatsManager.resume(CommandStatsManager.getCommands(Window.TOTAL)), false)
                         .build()
                     ).queue();
 
@@ -429,32 +430,32 @@ public class InfoCmds {
                     if (args.length > 1) {
                         String what = args[1];
                         if (what.equals("total")) {
-                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.TOTAL_EVENTS, baseEmbed(event, "Guild Stats | Total")).build()).queue();
+                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.getEvents(Window.TOTAL), baseEmbed(event, "Guild Stats | Total")).build()).queue();
                             return;
                         }
 
                         if (what.equals("daily")) {
-                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.DAY_EVENTS, baseEmbed(event, "Guild Stats | Daily")).build()).queue();
+                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.getEvents(Window.DAY), baseEmbed(event, "Guild Stats | Daily")).build()).queue();
                             return;
                         }
 
                         if (what.equals("hourly")) {
-                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.HOUR_EVENTS, baseEmbed(event, "Guild Stats | Hourly")).build()).queue();
+                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.getEvents(Window.HOUR), baseEmbed(event, "Guild Stats | Hourly")).build()).queue();
                             return;
                         }
 
                         if (what.equals("now")) {
-                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.MINUTE_EVENTS, baseEmbed(event, "Guild Stats | Now")).build()).queue();
+                            event.getChannel().sendMessage(GuildStatsManager.fillEmbed(GuildStatsManager.getEvents(Window.MINUTE), baseEmbed(event, "Guild Stats | Now")).build()).queue();
                             return;
                         }
                     }
 
                     //Default
                     event.getChannel().sendMessage(baseEmbed(event, "Guild Stats")
-                        .addField("Now", GuildStatsManager.resume(GuildStatsManager.MINUTE_EVENTS), false)
-                        .addField("Hourly", GuildStatsManager.resume(GuildStatsManager.HOUR_EVENTS), false)
-                        .addField("Daily", GuildStatsManager.resume(GuildStatsManager.DAY_EVENTS), false)
-                        .addField("Total", GuildStatsManager.resume(GuildStatsManager.TOTAL_EVENTS), false)
+                        .addField("Now", GuildStatsManager.resume(GuildStatsManager.getEvents(Window.MINUTE)), false)
+                        .addField("Hourly", GuildStatsManager.resume(GuildStatsManager.getEvents(Window.HOUR)), false)
+                        .addField("Daily", GuildStatsManager.resume(GuildStatsManager.getEvents(Window.DAY)), false)
+                        .addField("Total", GuildStatsManager.resume(GuildStatsManager.getEvents(Window.TOTAL)), false)
                         .setFooter("Guilds: " + MantaroBot.getInstance().getGuilds().size(), null)
                         .build()
                     ).queue();
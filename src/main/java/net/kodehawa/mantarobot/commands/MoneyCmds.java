@@ -3,7 +3,6 @@ package net.kodehawa.mantarobot.commands;
 import com.google.common.eventbus.Subscribe;
 import com.rethinkdb.gen.ast.OrderBy;
 import com.rethinkdb.model.OptArgs;
-import com.rethinkdb.net.Cursor;
 import net.dv8tion.jda.core.entities.MessageEmbed;
 import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
@@ -15,6 +14,7 @@ import net.kodehawa.mantarobot.commands.currency.item.Items;
 import net.kodehawa.mantarobot.core.listeners.operations.old.InteractiveOperationListener;
 import net.kodehawa.mantarobot.core.listeners.operations.old.InteractiveOperations;
 import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.PooledCursor;
 import net.kodehawa.mantarobot.db.entities.Marriage;
 import net.kodehawa.mantarobot.db.entities.UserData;
 import net.kodehawa.mantarobot.modules.CommandRegistry;
@@ -376,13 +376,12 @@ public class MoneyCmds {
                                 .optArg("index", r.desc("money"));
 
                 if (args.length > 0 && (args[0].equalsIgnoreCase("lvl") || args[0].equalsIgnoreCase("level"))) {
-                    Cursor<Map> m = r.table("players")
+                    PooledCursor<Map> m = MantaroData.pool().run(r.table("players")
                             .orderBy()
                             .optArg("index", r.desc("level"))
                             .filter(player -> player.g("id").match(pattern))
                             .map(player -> player.pluck("id", "level"))
-                            .limit(15)
-                            .run(MantaroData.conn(), OptArgs.of("read_mode", "outdated"));
+                            .limit(15), OptArgs.of("read_mode", "outdated"));
                     AtomicInteger i = new AtomicInteger();
                     List<Map> c = m.toList();
 
@@ -405,13 +404,12 @@ public class MoneyCmds {
 
 
                 if (args.length > 0 && (args[0].equalsIgnoreCase("rep") || args[0].equalsIgnoreCase("reputation"))) {
-                    Cursor<Map> m = r.table("players")
+                    PooledCursor<Map> m = MantaroData.pool().run(r.table("players")
                             .orderBy()
                             .optArg("index", r.desc("reputation"))
                             .filter(player -> player.g("id").match(pattern))
                             .map(player -> player.pluck("id", "reputation"))
-                            .limit(15)
-                            .run(MantaroData.conn(), OptArgs.of("read_mode", "outdated"));
+                            .limit(15), OptArgs.of("read_mode", "outdated"));
                     AtomicInteger i = new AtomicInteger();
                     List<Map> c = m.toList();
 
@@ -432,7 +430,7 @@ public class MoneyCmds {
                     return;
                 }
 
-                Cursor<Map> c1 = getGlobalRichest(template, pattern);
+                PooledCursor<Map> c1 = getGlobalRichest(template, pattern);
                 AtomicInteger i = new AtomicInteger();
                 List<Map> c = c1.toList();
 
@@ -485,10 +483,9 @@ public class MoneyCmds {
         player.saveAsync();
     }
 
-    private Cursor<Map> getGlobalRichest(OrderBy template, String pattern) {
-        return template.filter(player -> player.g("id").match(pattern))
+    private PooledCursor<Map> getGlobalRichest(OrderBy template, String pattern) {
+        return MantaroData.pool().run(template.filter(player -> player.g("id").match(pattern))
                 .map(player -> player.pluck("id", "money"))
-                .limit(15)
-                .run(MantaroData.conn(), OptArgs.of("read_mode", "outdated"));
+                .limit(15), OptArgs.of("read_mode", "outdated"));
     }
 }
@@ -3,7 +3,6 @@ package net.kodehawa.mantarobot.commands;
 import com.google.common.eventbus.Subscribe;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import gnu.trove.iterator.TIntIterator;
 import gnu.trove.set.hash.TIntHashSet;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.EmbedBuilder;
@@ -17,6 +16,7 @@ import net.kodehawa.mantarobot.commands.currency.RateLimiter;
 import net.kodehawa.mantarobot.commands.currency.TextChannelGround;
 import net.kodehawa.mantarobot.commands.info.GuildStatsManager;
 import net.kodehawa.mantarobot.commands.music.GuildMusicManager;
+import net.kodehawa.mantarobot.commands.music.requester.TrackQueue;
 import net.kodehawa.mantarobot.commands.music.requester.TrackScheduler;
 import net.kodehawa.mantarobot.commands.music.utils.AudioCmdUtils;
 import net.kodehawa.mantarobot.commands.music.utils.AudioUtils;
@@ -459,83 +459,81 @@ public class MusicCmds {
                     return;
                 }
 
-                MantaroBot.getInstance().getAudioManager().getMusicManager(event.getGuild()).getTrackScheduler()
-                        .getQueueAsList(list -> {
-                            TIntHashSet selected = new TIntHashSet();
-
-                            String last = Integer.toString(list.size() - 1);
-
-                            for(String param : args) {
-
-                                String arg = replaceEach(
-                                        param,
-                                        new String[]{"first", "next", "last", "all"},
-                                        new String[]{"0", "0", last, "0-" + last}
-                                );
-
-                                if(arg.contains("-") || arg.contains("~")) {
-                                    String[] range = content.split("[-~]");
-
-                                    if(range.length != 2) {
-                                        event.getChannel().sendMessage(
-                                                EmoteReference.ERROR + "``" + param + "`` is not a valid range!").queue();
-                                        return;
-                                    }
-
-                                    try {
-                                        int iStart = Integer.parseInt(range[0]) - 1, iEnd = Integer.parseInt(range[1]) - 1;
-
-                                        if(iStart < 0 || iStart >= list.size()) {
-                                            event.getChannel().sendMessage(
-                                                    EmoteReference.ERROR + "There isn't a queued track at the position ``" +
-                                                            iStart + "``!").queue();
-                                            return;
-                                        }
-
-                                        if(iEnd < 0 || iEnd >= list.size()) {
-                                            event.getChannel().sendMessage(
-                                                    EmoteReference.ERROR + "There isn't a queued track at the position ``" +
-                                                            iEnd + "``!").queue();
-                                            return;
-                                        }
-
-                                        selected.addAll(IntStream.rangeClosed(iStart, iEnd).toArray());
-                                    } catch(NumberFormatException ex) {
-                                        event.getChannel().sendMessage(
-                                                EmoteReference.ERROR + "``" + param + "`` is not a valid number!").queue();
-                                        return;
-                                    }
-                                } else {
-                                    try {
-                                        int i = Integer.parseInt(content) - 1;
-
-                                        if(i < 0 || i >= list.size()) {
-                                            event.getChannel().sendMessage(
-                                                    EmoteReference.ERROR + "There isn't a queued track at the position ``"
-                                                            + i + "``!").queue();
-                                            return;
-                                        }
-
-                                        selected.add(i);
-                                    } catch(NumberFormatException ex) {
-                                        event.getChannel().sendMessage(
-                                                EmoteReference.ERROR + "``" + arg + "`` is not a valid number or range!")
-                                                .queue();
-                                        return;
-                                    }
-                                }
+                TrackQueue queue = MantaroBot.getInstance().getAudioManager().getMusicManager(event.getGuild()).getTrackScheduler()
+                        .getQueue();
+                TIntHashSet selected = new TIntHashSet();
+
+                String last = Integer.toString(queue.size() - 1);
+
+                for(String param : args) {
+
+                    String arg = replaceEach(
+                            param,
+                            new String[]{"first", "next", "last", "all"},
+                            new String[]{"0", "0", last, "0-" + last}
+                    );
+
+                    if(arg.contains("-") || arg.contains("~")) {
+                        String[] range = content.split("[-~]");
+
+                        if(range.length != 2) {
+                            event.getChannel().sendMessage(
+                                    EmoteReference.ERROR + "``" + param + "`` is not a valid range!").queue();
+                            return;
+                        }
+
+                        try {
+                            int iStart = Integer.parseInt(range[0]) - 1, iEnd = Integer.parseInt(range[1]) - 1;
+
+                            if(iStart < 0 || iStart >= queue.size()) {
+                                event.getChannel().sendMessage(
+                                        EmoteReference.ERROR + "There isn't a queued track at the position ``" +
+                                                iStart + "``!").queue();
+                                return;
+                            }
+
+                            if(iEnd < 0 || iEnd >= queue.size()) {
+                                event.getChannel().sendMessage(
+                                        EmoteReference.ERROR + "There isn't a queued track at the position ``" +
+                                                iEnd + "``!").queue();
+                                return;
                             }
 
-                            TIntIterator i = selected.iterator();
-                            while(i.hasNext()) list.remove(i.next());
+                            selected.addAll(IntStream.rangeClosed(iStart, iEnd).toArray());
+                        } catch(NumberFormatException ex) {
+                            event.getChannel().sendMessage(
+                                    EmoteReference.ERROR + "``" + param + "`` is not a valid number!").queue();
+                            return;
+                        }
+                    } else {
+                        try {
+                            int i = Integer.parseInt(content) - 1;
 
+                            if(i < 0 || i >= queue.size()) {
+                                event.getChannel().sendMessage(
+                                        EmoteReference.ERROR + "There isn't a queued track at the position ``"
+                                                + i + "``!").queue();
+                                return;
+                            }
+
+                            selected.add(i);
+                        } catch(NumberFormatException ex) {
                             event.getChannel().sendMessage(
-                                    EmoteReference.CORRECT +
-                                            "Removed **" + selected.size() + "** track(s) from the queue."
-                            ).queue();
+                                    EmoteReference.ERROR + "``" + arg + "`` is not a valid number or range!")
+                                    .queue();
+                            return;
+                        }
+                    }
+                }
 
-                            TextChannelGround.of(event).dropItemWithChance(0, 10);
-                        });
+                int removed = queue.removeAll(selected.toArray());
+
+                event.getChannel().sendMessage(
+                        EmoteReference.CORRECT +
+                                "Removed **" + removed + "** track(s) from the queue."
+                ).queue();
+
+                TextChannelGround.of(event).dropItemWithChance(0, 10);
             }
 
             @Override
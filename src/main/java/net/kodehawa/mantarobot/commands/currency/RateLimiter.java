@@ -1,14 +1,13 @@
 package net.kodehawa.mantarobot.commands.currency;
 
-import lombok.Getter;
+import com.google.common.primitives.Longs;
 import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.User;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class defines the x ratelimit that will be taken into account when x user inputs a command.
@@ -18,16 +17,22 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * This class normally does the work of making abusable commands not-so abusable, like ~>loot. Also sorts daily or timely timeouts for other commands like daily and rep.
  * <p>
+ * Works as a token bucket: every key can be used up to max times in a row, and gets one use back every timeout/max. The whole bucket is a single
+ * timestamp per key (when it'll be full again), refilled lazily when the key gets used and updated with a CAS, so there's no locking and no tasks
+ * to schedule. Keys whose bucket is full again get dropped every now and then, by whoever is calling the limiter at the time.
+ * <p>
  * Made by UmModderQualquier (Natan), modified by Kodehawa.
  *
  * @since 01-06-2017
  */
 public class RateLimiter {
-    private static final ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor();
-    @Getter
-    private final ConcurrentHashMap<String, Pair<AtomicInteger, Long>> usersRateLimited = new ConcurrentHashMap<>();
-    private final long max;
-    private final long timeout;
+    //Marks a bucket that got dropped from the map, so whoever still has it goes and gets the new one.
+    private static final long REMOVED = Long.MIN_VALUE;
+    private static final long MIN_SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private final Map<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+    private final long interval, sweepInterval, timeout, tolerance;
+
     /**
      * Default constructor normally used in Currency commands to ratelimit all people.
      *
@@ -35,8 +40,7 @@ public class RateLimiter {
      * @param timeout How much time until the ratelimit gets lifted
      */
     public RateLimiter(TimeUnit timeUnit, int timeout) {
-        this.max = 1;
-        this.timeout = timeUnit.toMillis(timeout);
+        this(timeUnit, 1, timeout);
     }
 
     /**
@@ -45,58 +49,80 @@ public class RateLimiter {
      * @param timeout  How much time until the ratelimit gets lifted.
      */
     public RateLimiter(TimeUnit timeUnit, int max, int timeout) {
-        this.max = max;
         this.timeout = timeUnit.toMillis(timeout);
+        //A limiter that allows nothing gets a bucket that never has room.
+        this.interval = max > 0 ? Math.max(this.timeout / max, 1) : Long.MAX_VALUE / 4;
+        this.tolerance = max > 0 ? this.timeout - interval : -1;
+        this.sweepInterval = Math.max(this.timeout, MIN_SWEEP_INTERVAL);
+    }
+
+    //Snowflakes go as they are, anything else by its hash (which can't be mistaken for one, those are way bigger than an int).
+    private static long key(String key) {
+        Long id = Longs.tryParse(key);
+        return id == null ? key.hashCode() : id;
     }
 
     //Basically where you get b1nzy'd.
-    public boolean process(String key) {
-        Pair<AtomicInteger, Long> p = usersRateLimited.get(key);
-        if(p == null) {
-            usersRateLimited.put(key, p = new Pair<>());
-            p.first = new AtomicInteger();
-        }
-        AtomicInteger a = p.first;
+    public boolean process(long key) {
+        long now = System.currentTimeMillis();
+        sweep(now);
 
-        long i = a.get();
-        if(i >= max) return false;
+        while (true) {
+            AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong());
+            long full;
+            //Retry the CAS for as long as the bucket is the current one and has room.
+            while ((full = bucket.get()) != REMOVED) {
+                long start = Math.max(full, now);
+                if (start - now > tolerance) return false;
+                if (bucket.compareAndSet(full, start + interval)) return true;
+            }
 
-        a.incrementAndGet();
-        long now = System.currentTimeMillis();
-        Long tryAgain = p.second;
-        if(tryAgain == null || tryAgain < now) {
-            p.second = now + timeout;
+            buckets.remove(key, bucket);
         }
-
-        ses.schedule(a::decrementAndGet, timeout, TimeUnit.MILLISECONDS);
-        return true;
     }
 
-    //Method overload.
-    public long tryAgainIn(String key) {
-        Pair<AtomicInteger, Long> p = usersRateLimited.get(key);
-        if(p == null || p.second == null) return 0;
-        return Math.max(p.second - System.currentTimeMillis(), 0);
-    }
+    public long tryAgainIn(long key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) return 0;
 
-    public long tryAgainIn(Member key) {
-        return tryAgainIn(key.getUser().getId());
+        long full = bucket.get();
+        if (full == REMOVED) return 0;
+        return Math.max(full - tolerance - System.currentTimeMillis(), 0);
     }
 
-    public long tryAgainIn(User key) {
-        return tryAgainIn(key.getId());
+    //Method overload.
+    public boolean process(String key) {
+        return process(key(key));
     }
 
     public boolean process(User user) {
-        return process(user.getId());
+        return process(user.getIdLong());
     }
 
     public boolean process(Member member) {
         return process(member.getUser());
     }
 
-    private static class Pair<F, S> {
-        F first;
-        S second;
+    public long tryAgainIn(String key) {
+        return tryAgainIn(key(key));
+    }
+
+    public long tryAgainIn(Member key) {
+        return tryAgainIn(key.getUser());
+    }
+
+    public long tryAgainIn(User key) {
+        return tryAgainIn(key.getIdLong());
+    }
+
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < sweepInterval || !lastSweep.compareAndSet(last, now)) return;
+
+        buckets.forEach((key, bucket) -> {
+            long full = bucket.get();
+            //A full bucket is the same as no bucket at all, as long as nobody takes from it before it's marked.
+            if (full <= now && bucket.compareAndSet(full, REMOVED)) buckets.remove(key, bucket);
+        });
     }
 }
@@ -12,6 +12,8 @@ public class Item {
     private boolean sellable, buyable;
     @Getter
     private boolean hidden;
+    //Position in Items.ALL, set by Items.
+    int id = -1;
 
     public Item(String emoji, String name, String desc, long value) {
         this(emoji, name, desc, value, false, true, true, false, 100);
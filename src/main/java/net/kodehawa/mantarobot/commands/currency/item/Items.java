@@ -70,6 +70,8 @@ public class Items {
     };
 
     static {
+        for(int i = 0; i < ALL.length; i++) ALL[i].id = i;
+
         Random r = new Random();
         Async.task("Market Thread", () -> Stream.of(ALL).forEach(item -> item.changePrices(r)), 30, TimeUnit.MINUTES);
     }
@@ -110,6 +112,6 @@ public class Items {
     }
 
     public static int idOf(Item item) {
-        return Arrays.asList(ALL).indexOf(item);
+        return item.id;
     }
 }
@@ -9,15 +9,19 @@ import net.kodehawa.lib.customfunc.Environiment;
 import net.kodehawa.mantarobot.utils.URLEncoding;
 import org.apache.commons.collections4.iterators.ArrayIterator;
 
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiPredicate;
 
 public class ConditionalCustoms {
+    private static final Map<String, Object> constants = new HashMap<>();
     private static final Map<String, CustomFunction> functions = new ConcurrentHashMap<>();
 
     static {
+        constants.put("true", true);
+        constants.put("false", false);
+
         Map<String, BiPredicate<Object, Object>> comparators = new ConcurrentHashMap<>();
 
         comparators.put(
@@ -162,11 +166,28 @@ public class ConditionalCustoms {
     }
 
     public static Environiment genEnv(GuildMessageReceivedEvent event) {
-        Map<String, Object> tokens = new LinkedHashMap<>();
-        tokens.put("true", true);
-        tokens.put("false", false);
-        tokens.putAll(Mapifier.mapped("event", event));
-        return Environiment.of(functions, tokens);
+        DynamicTokens<GuildMessageReceivedEvent> tokens = Mapifier.tokens(event);
+        return new Environiment() {
+            @Override
+            public boolean containsFunction(String functionName) {
+                return functions.containsKey(functionName);
+            }
+
+            @Override
+            public boolean containsResolvedToken(String token) {
+                return constants.containsKey(token) || tokens.contains(token);
+            }
+
+            @Override
+            public CustomFunction getFunction(String functionName) {
+                return functions.get(functionName);
+            }
+
+            @Override
+            public Object getResolvedToken(String token) {
+                return constants.containsKey(token) ? constants.get(token) : tokens.get(token);
+            }
+        };
     }
 
     private static <T1, T2> BiPredicate<T1, T2> negate(BiPredicate<T1, T2> p) {
@@ -0,0 +1,80 @@
+package net.kodehawa.mantarobot.commands.custom;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import net.kodehawa.lib.customfunc.Template;
+import net.kodehawa.mantarobot.db.entities.CustomCommand;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * The custom commands of the guilds that are using them on this node, by guild and name.
+ * <p>
+ * A guild's commands get loaded the first time one of them is looked up, and dropped after a while without being used, so only the guilds
+ * this node is actually serving take up memory. Responses are decoded once, when they're loaded or changed.
+ */
+public class CustomCommandRegistry {
+    private static final int MAX_GUILDS = 50000, IDLE_MINUTES = 60;
+    private final LoadingCache<Long, Map<String, String[]>> guilds;
+
+    /**
+     * @param loader gets all the custom commands of a guild from the database.
+     */
+    public CustomCommandRegistry(LongFunction<List<CustomCommand>> loader) {
+        guilds = CacheBuilder.newBuilder()
+            .maximumSize(MAX_GUILDS)
+            .expireAfterAccess(IDLE_MINUTES, TimeUnit.MINUTES)
+            .build(new CacheLoader<Long, Map<String, String[]>>() {
+                @Override
+                public Map<String, String[]> load(Long guildId) {
+                    List<CustomCommand> commands = loader.apply(guildId);
+                    Map<String, String[]> map = new ConcurrentHashMap<>(Math.max(commands.size(), 1));
+                    for (CustomCommand command : commands) map.put(command.getCommandName().intern(), responses(command));
+                    return map;
+                }
+            });
+    }
+
+    private static String[] responses(CustomCommand command) {
+        List<String> values = command.values();
+        String[] responses = new String[values.size()];
+        int i = 0;
+        //Goes through the iterator, which decodes them.
+        for (String value : values) responses[i++] = value;
+        return responses;
+    }
+
+    /**
+     * @return the responses of the command, or null if the guild doesn't have a custom command with that name.
+     */
+    public String[] get(long guildId, String name) {
+        return guilds.getUnchecked(guildId).get(name);
+    }
+
+    public Set<String> names(long guildId) {
+        return guilds.getUnchecked(guildId).keySet();
+    }
+
+    /**
+     * Adds or replaces a custom command, after it was saved.
+     */
+    public void put(CustomCommand command) {
+        String[] old = guilds.getUnchecked(Long.parseLong(command.getGuildId())).put(command.getCommandName().intern(), responses(command));
+        if (old != null) Template.invalidate(Arrays.asList(old));
+    }
+
+    /**
+     * Removes a custom command, after it was deleted.
+     */
+    public void remove(CustomCommand command) {
+        String[] old = guilds.getUnchecked(Long.parseLong(command.getGuildId())).remove(command.getCommandName());
+        if (old != null) Template.invalidate(Arrays.asList(old));
+    }
+}
@@ -0,0 +1,43 @@
+package net.kodehawa.mantarobot.commands.custom;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The tokens ({@code $(event.author.name)} and such) available for a single event, resolved from the event only when a message asks for
+ * them, and at most once.
+ * <p>
+ * Instances are meant to be used for a single message, by a single thread. The resolvers are built once by {@link Mapifier}.
+ *
+ * @param <E> the type of event the tokens come from.
+ */
+public class DynamicTokens<E> {
+    private final E event;
+    private final Map<String, Function<E, String>> resolvers;
+    private Map<String, String> resolved;
+
+    DynamicTokens(Map<String, Function<E, String>> resolvers, E event) {
+        this.resolvers = resolvers;
+        this.event = event;
+    }
+
+    public boolean contains(String token) {
+        return resolvers.containsKey(token);
+    }
+
+    /**
+     * @return the value of the token, or null if it doesn't exist (or doesn't have a value, like the topic of a channel without one).
+     */
+    public String get(String token) {
+        Function<E, String> resolver = resolvers.get(token);
+        if (resolver == null) return null;
+
+        if (resolved == null) resolved = new HashMap<>();
+        else if (resolved.containsKey(token)) return resolved.get(token);
+
+        String value = resolver.apply(event);
+        resolved.put(token, value);
+        return value;
+    }
+}
@@ -8,95 +8,112 @@ import net.dv8tion.jda.core.events.guild.member.GenericGuildMemberEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static br.com.brjdevs.java.utils.texts.StringUtils.splitArgs;
-import static net.kodehawa.mantarobot.utils.Utils.iterate;
 import static org.apache.commons.lang3.StringUtils.capitalize;
 
+/**
+ * Maps the tokens available to custom commands and join/leave messages to the JDA objects they come from.
+ * <p>
+ * The mappings are built once. {@link #tokens(GuildMessageReceivedEvent)} and {@link #tokens(GenericGuildMemberEvent)} only bind them to an
+ * event, so nothing gets resolved unless the message actually uses it.
+ */
 public class Mapifier {
     private static final Pattern GETTER_MODIFIER = Pattern.compile("\\$\\([A-Za-z0-9.]+?\\)");
+    private static final Map<String, Function<GenericGuildMemberEvent, String>> MEMBER_EVENT = new HashMap<>();
+    private static final Map<String, Function<GuildMessageReceivedEvent, String>> MESSAGE_EVENT = new HashMap<>();
 
-    public static String dynamicResolve(String string, Map<String, String> dynamicMap) {
+    static {
+        mapMessageEvent("event", MESSAGE_EVENT);
+        mapMemberEvent("event", MEMBER_EVENT);
+    }
+
+    public static String dynamicResolve(String string, DynamicTokens<?> tokens) {
         if(!string.contains("$(")) return string;
 
-        Set<String> skipIfIterated = new HashSet<>();
-        for(String key : iterate(GETTER_MODIFIER, string)) {
-            if(skipIfIterated.contains(key)) continue;
-            String mapKey = key.substring(2, key.length() - 1);
-            string = string.replace(key, dynamicMap.getOrDefault(mapKey, mapKey));
-            if(!string.contains("$(")) break;
-            skipIfIterated.add(key);
-        }
+        Matcher matcher = GETTER_MODIFIER.matcher(string);
+        if(!matcher.find()) return string;
 
-        return string;
+        StringBuilder builder = new StringBuilder(string.length());
+        int last = 0;
+        do {
+            String token = string.substring(matcher.start() + 2, matcher.end() - 1);
+            builder.append(string, last, matcher.start())
+                .append(tokens.contains(token) ? tokens.get(token) : token);
+            last = matcher.end();
+        } while(matcher.find());
+
+        return builder.append(string, last, string.length()).toString();
     }
 
-    public static void map(String prefix, Map<String, String> map, Guild guild) {
-        map.put(prefix, guild.getName());
-        prefix = prefix + ".";
-        map.put(prefix + "name", guild.getName());
-        map(prefix + "owner", map, guild.getOwner());
-        map.put(prefix + "region", guild.getRegion().getName());
-        map(prefix + "publicChannel", map, guild.getPublicChannel());
-        map.put(prefix + "totalusers", String.valueOf(guild.getMembers().size()));
-        //map(prefix + "me", map, guild.getSelfMember());
+    public static DynamicTokens<GuildMessageReceivedEvent> tokens(GuildMessageReceivedEvent event) {
+        return new DynamicTokens<>(MESSAGE_EVENT, event);
     }
 
-    public static void map(String prefix, Map<String, String> map, Member member) {
-        map.put(prefix, member.getAsMention());
+    public static DynamicTokens<GenericGuildMemberEvent> tokens(GenericGuildMemberEvent event) {
+        return new DynamicTokens<>(MEMBER_EVENT, event);
+    }
+
+    private static <E> void mapGuild(String prefix, Map<String, Function<E, String>> map, Function<E, Guild> guild) {
+        map.put(prefix, guild.andThen(Guild::getName));
         prefix = prefix + ".";
-        map.put(prefix + "username", member.getUser().getName());
-        map.put(prefix + "discriminator", member.getUser().getDiscriminator());
-        map.put(prefix + "name", member.getEffectiveName());
-        map.put(prefix + "game", member.getGame() != null ? member.getGame().getName() : "None");
-        map.put(prefix + "status", capitalize(member.getOnlineStatus().getKey()));
-        map.put(prefix + "mention", member.getAsMention());
-        map.put(prefix + "avatar", member.getUser().getEffectiveAvatarUrl());
-        map.put(prefix + "id", member.getUser().getId());
+        map.put(prefix + "name", guild.andThen(Guild::getName));
+        mapMember(prefix + "owner", map, guild.andThen(Guild::getOwner));
+        map.put(prefix + "region", guild.andThen(g -> g.getRegion().getName()));
+        mapChannel(prefix + "publicChannel", map, guild.andThen(Guild::getPublicChannel));
+        map.put(prefix + "totalusers", guild.andThen(g -> String.valueOf(g.getMembers().size())));
+        //mapMember(prefix + "me", map, guild.andThen(Guild::getSelfMember));
     }
 
-    public static void map(String prefix, Map<String, String> map, GuildMessageReceivedEvent event) {
-        map.put(prefix, event.getMember().getAsMention() + "@" + event.getChannel().getAsMention());
+    private static <E> void mapMember(String prefix, Map<String, Function<E, String>> map, Function<E, Member> member) {
+        map.put(prefix, member.andThen(Member::getAsMention));
         prefix = prefix + ".";
-        map(prefix + "channel", map, event.getChannel());
-        map(prefix + "guild", map, event.getGuild());
-        map(prefix + "me", map, event.getGuild().getSelfMember());
-        map(prefix + "author", map, event.getMember());
-        map(prefix + "message", map, event.getMessage());
+        map.put(prefix + "username", member.andThen(m -> m.getUser().getName()));
+        map.put(prefix + "discriminator", member.andThen(m -> m.getUser().getDiscriminator()));
+        map.put(prefix + "name", member.andThen(Member::getEffectiveName));
+        map.put(prefix + "game", member.andThen(m -> m.getGame() != null ? m.getGame().getName() : "None"));
+        map.put(prefix + "status", member.andThen(m -> capitalize(m.getOnlineStatus().getKey())));
+        map.put(prefix + "mention", member.andThen(Member::getAsMention));
+        map.put(prefix + "avatar", member.andThen(m -> m.getUser().getEffectiveAvatarUrl()));
+        map.put(prefix + "id", member.andThen(m -> m.getUser().getId()));
     }
 
-    public static void map(String prefix, Map<String, String> map, GenericGuildMemberEvent event) {
-        map.put(prefix, event.getMember().getAsMention() + "@" + event.getGuild().getName());
+    private static void mapMessageEvent(String prefix, Map<String, Function<GuildMessageReceivedEvent, String>> map) {
+        map.put(prefix, event -> event.getMember().getAsMention() + "@" + event.getChannel().getAsMention());
         prefix = prefix + ".";
-        map(prefix + "guild", map, event.getGuild());
-        map(prefix + "me", map, event.getGuild().getSelfMember());
-        map(prefix + "user", map, event.getMember());
+        mapChannel(prefix + "channel", map, GuildMessageReceivedEvent::getChannel);
+        mapGuild(prefix + "guild", map, GuildMessageReceivedEvent::getGuild);
+        mapMember(prefix + "me", map, event -> event.getGuild().getSelfMember());
+        mapMember(prefix + "author", map, GuildMessageReceivedEvent::getMember);
+        mapMessage(prefix + "message", map, GuildMessageReceivedEvent::getMessage);
     }
 
-    public static void map(String prefix, Map<String, String> map, Message message) {
-        map.put(prefix, splitArgs(message.getRawContent(), 2)[1]);
+    private static void mapMemberEvent(String prefix, Map<String, Function<GenericGuildMemberEvent, String>> map) {
+        map.put(prefix, event -> event.getMember().getAsMention() + "@" + event.getGuild().getName());
         prefix = prefix + ".";
-        map.put(prefix + "raw", splitArgs(message.getRawContent(), 2)[1]);
-        map.put(prefix + "textual", splitArgs(message.getContent(), 2)[1]);
-        map.put(prefix + "stripped", splitArgs(message.getStrippedContent(), 2)[1]);
+        mapGuild(prefix + "guild", map, GenericGuildMemberEvent::getGuild);
+        mapMember(prefix + "me", map, event -> event.getGuild().getSelfMember());
+        mapMember(prefix + "user", map, GenericGuildMemberEvent::getMember);
     }
 
-    public static void map(String prefix, Map<String, String> map, TextChannel channel) {
-        map.put(prefix, channel.getAsMention());
+    private static <E> void mapMessage(String prefix, Map<String, Function<E, String>> map, Function<E, Message> message) {
+        map.put(prefix, message.andThen(m -> splitArgs(m.getRawContent(), 2)[1]));
         prefix = prefix + ".";
-        map.put(prefix + "topic", channel.getTopic());
-        map.put(prefix + "name", channel.getName());
-        map.put(prefix + "id", channel.getId());
-        map.put(prefix + "mention", channel.getAsMention());
+        map.put(prefix + "raw", message.andThen(m -> splitArgs(m.getRawContent(), 2)[1]));
+        map.put(prefix + "textual", message.andThen(m -> splitArgs(m.getContent(), 2)[1]));
+        map.put(prefix + "stripped", message.andThen(m -> splitArgs(m.getStrippedContent(), 2)[1]));
     }
 
-    public static Map<String, String> mapped(String prefix, GuildMessageReceivedEvent event) {
-        Map<String, String> map = new HashMap<>();
-        map(prefix, map, event);
-        return map;
+    private static <E> void mapChannel(String prefix, Map<String, Function<E, String>> map, Function<E, TextChannel> channel) {
+        map.put(prefix, channel.andThen(TextChannel::getAsMention));
+        prefix = prefix + ".";
+        map.put(prefix + "topic", channel.andThen(TextChannel::getTopic));
+        map.put(prefix + "name", channel.andThen(TextChannel::getName));
+        map.put(prefix + "id", channel.andThen(TextChannel::getId));
+        map.put(prefix + "mention", channel.andThen(TextChannel::getAsMention));
     }
 }
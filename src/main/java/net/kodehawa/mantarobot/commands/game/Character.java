@@ -33,10 +33,6 @@ public class Character extends ImageGame {
     @Getter
     private int maxAttempts = 10;
 
-    public Character() {
-        super(10);
-    }
-
     @Override
     public void call(GameLobby lobby, HashMap<Member, UserData> players) {
         InteractiveOperations.createOverriding(lobby.getChannel(), 120, new InteractiveOperationListener() {
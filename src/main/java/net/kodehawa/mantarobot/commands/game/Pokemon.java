@@ -25,10 +25,6 @@ public class Pokemon extends ImageGame {
     private List<String> expectedAnswer;
     private int maxAttempts = 5;
 
-    public Pokemon() {
-        super(10);
-    }
-
     @Override
     public void call(GameLobby lobby, HashMap<Member, UserData> players) {
         InteractiveOperations.createOverriding(lobby.getChannel(), 120, new InteractiveOperationListener() {
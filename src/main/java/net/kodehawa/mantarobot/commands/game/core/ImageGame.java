@@ -11,11 +11,7 @@ import net.kodehawa.mantarobot.utils.cache.URLCache;
 import java.util.function.Consumer;
 
 public abstract class ImageGame extends Game {
-    private final URLCache cache;
-
-    public ImageGame(int cacheSize) {
-        cache = new URLCache(cacheSize);
-    }
+    private final URLCache cache = URLCache.DEFAULT;
 
     protected RestAction<Message> sendEmbedImage(MessageChannel channel, String url, Consumer<EmbedBuilder> embedConfigurator) {
         EmbedBuilder eb = new EmbedBuilder();
@@ -8,6 +8,7 @@ import net.kodehawa.mantarobot.db.entities.MantaroObject;
 import net.kodehawa.mantarobot.db.entities.helpers.ExtraGuildData;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.ArrayList;
 import java.util.Map;
 
 public class MuteTask implements Runnable {
@@ -15,7 +16,8 @@ public class MuteTask implements Runnable {
     @Override
     public void run() {
         MantaroObject data = MantaroData.db().getMantaroData();
-        for (Map.Entry<Long, Pair<String, Long>> entry : data.getMutes().entrySet())
+        //Mutes that are over get removed while going through them.
+        for (Map.Entry<Long, Pair<String, Long>> entry : new ArrayList<>(data.getMutes().entrySet()))
         {
             try {
                 Long id = entry.getKey();
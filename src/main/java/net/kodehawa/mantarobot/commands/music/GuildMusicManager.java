@@ -13,6 +13,7 @@ import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class GuildMusicManager {
     @Getter
@@ -22,11 +23,18 @@ public class GuildMusicManager {
     @Getter
     @Setter
     public boolean isAwaitingDeath;
+    @Getter
+    private final AudioPlayerSendHandler audioPlayerSendHandler;
     private ScheduledFuture<?> leaveTask = null;
+    private volatile long lastUsed = System.currentTimeMillis();
 
-    public GuildMusicManager(AudioPlayerManager manager, String guildId) {
+    /**
+     * @param totalQueueSize the counter of the tracks queued on every player, which this one's queue keeps up to date.
+     */
+    public GuildMusicManager(AudioPlayerManager manager, String guildId, LongAdder totalQueueSize) {
         audioPlayer = manager.createPlayer();
-        trackScheduler = new TrackScheduler(audioPlayer, guildId);
+        audioPlayerSendHandler = new AudioPlayerSendHandler(audioPlayer);
+        trackScheduler = new TrackScheduler(audioPlayer, guildId, totalQueueSize);
         audioPlayer.addListener(trackScheduler);
     }
 
@@ -55,7 +63,30 @@ public class GuildMusicManager {
         leaveTask = null;
     }
 
-    public AudioPlayerSendHandler getAudioPlayerSendHandler(){
-        return new AudioPlayerSendHandler(audioPlayer);
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true if nothing has been playing or used this player for the last {@code timeout} milliseconds, and it isn't connected.
+     */
+    boolean isIdle(long now, long timeout) {
+        if(!trackScheduler.isStopped() || now - trackScheduler.getStoppedSince() < timeout || now - lastUsed < timeout) return false;
+
+        Guild guild = trackScheduler.getGuild();
+        return guild == null || !guild.getAudioManager().isConnected();
+    }
+
+    /**
+     * Stops this player for good, once it was removed from the {@link MantaroAudioManager}.
+     */
+    void destroy() {
+        cancelLeave();
+        trackScheduler.getQueue().clear();
+        audioPlayer.destroy();
+
+        Guild guild = trackScheduler.getGuild();
+        if(guild != null && guild.getAudioManager().getSendingHandler() == audioPlayerSendHandler)
+            guild.getAudioManager().setSendingHandler(null);
     }
 }
\ No newline at end of file
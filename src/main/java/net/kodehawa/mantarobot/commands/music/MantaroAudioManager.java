@@ -1,5 +1,6 @@
 package net.kodehawa.mantarobot.commands.music;
 
+import br.com.brjdevs.java.utils.async.Async;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.source.bandcamp.BandcampAudioSourceManager;
@@ -9,48 +10,117 @@ import com.sedmelluq.discord.lavaplayer.source.twitch.TwitchStreamAudioSourceMan
 import com.sedmelluq.discord.lavaplayer.source.vimeo.VimeoAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioSourceManager;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.core.managers.AudioManager;
+import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.requester.AudioLoader;
 import net.kodehawa.mantarobot.commands.music.utils.AudioCmdUtils;
 
-import java.util.HashMap;
+import java.io.File;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * The music players of the guilds on this node, by guild id.
+ * <p>
+ * Players are created the first time a guild needs one, and reclaimed once they've been stopped and unused for {@link #IDLE_TIMEOUT}
+ * milliseconds, so guilds that played music once don't keep a player forever. How many players are playing, paused and idle is sent to StatsD
+ * as {@code music_players} every time the idle ones are checked, along with the total queue size as {@code music_queue_size}.
+ */
+@Slf4j
 public class MantaroAudioManager {
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
     @Getter
-    private final Map<String, GuildMusicManager> musicManagers;
+    private final Map<Long, GuildMusicManager> musicManagers = new ConcurrentHashMap<>();
+    //Updated by the queues themselves, so getting the total doesn't have to go through every player.
+    private final LongAdder totalQueueSize = new LongAdder();
     @Getter
     private AudioPlayerManager playerManager;
+    @Getter
+    private final TrackCache trackCache;
+    @Getter
+    private final QueueStore queueStore;
 
     public MantaroAudioManager() {
-        this.musicManagers = new HashMap<>();
         this.playerManager = new DefaultAudioPlayerManager();
+        //Has to go first, so cached queries never reach the others.
+        trackCache = new TrackCache(playerManager);
+        playerManager.registerSourceManager(trackCache);
         playerManager.registerSourceManager(new YoutubeAudioSourceManager(true));
         playerManager.registerSourceManager(new SoundCloudAudioSourceManager(true));
         playerManager.registerSourceManager(new BandcampAudioSourceManager());
         playerManager.registerSourceManager(new VimeoAudioSourceManager());
         playerManager.registerSourceManager(new TwitchStreamAudioSourceManager());
         playerManager.registerSourceManager(new BeamAudioSourceManager());
+        queueStore = new QueueStore(new File("music_queues.log"), this);
 
+        Async.task("Music Player Reclaimer", this::reclaimIdle, 1, TimeUnit.MINUTES);
+        Async.task("Music Queue Saver", queueStore::flush, 10, TimeUnit.SECONDS);
     }
 
-    public synchronized GuildMusicManager getMusicManager(Guild guild) {
-        GuildMusicManager musicManager = musicManagers.computeIfAbsent(guild.getId(), id -> new GuildMusicManager(playerManager, guild.getId()));
-        if(guild.getAudioManager().getSendingHandler() == null)
-            guild.getAudioManager().setSendingHandler(musicManager.getAudioPlayerSendHandler());
+    public GuildMusicManager getMusicManager(Guild guild) {
+        GuildMusicManager musicManager = musicManagers.computeIfAbsent(guild.getIdLong(), id -> new GuildMusicManager(playerManager, guild.getId(), totalQueueSize));
+        musicManager.touch();
+
+        //Either there's no handler yet, or it belongs to a player that was reclaimed.
+        AudioManager audioManager = guild.getAudioManager();
+        if(audioManager.getSendingHandler() != musicManager.getAudioPlayerSendHandler())
+            audioManager.setSendingHandler(musicManager.getAudioPlayerSendHandler());
         return musicManager;
     }
 
-    public synchronized long getTotalQueueSize() {
-        return musicManagers.values().stream().map(m -> m.getTrackScheduler().getQueue().size()).mapToInt(Integer::intValue).sum();
+    /**
+     * Removes the player of a guild and frees everything it was using, if it had one.
+     */
+    public void removeMusicManager(long guildId) {
+        GuildMusicManager musicManager = musicManagers.remove(guildId);
+        if(musicManager != null) musicManager.destroy();
     }
 
-    public synchronized void loadAndPlay(GuildMessageReceivedEvent event, String trackUrl, boolean skipSelection) {
+    public long getTotalQueueSize() {
+        return totalQueueSize.sum();
+    }
+
+    public void loadAndPlay(GuildMessageReceivedEvent event, String trackUrl, boolean skipSelection) {
         GuildMusicManager musicManager = getMusicManager(event.getGuild());
         if(!AudioCmdUtils.connectToVoiceChannel(event)) return;
         musicManager.getTrackScheduler().getAudioPlayer().setPaused(false);
         if(musicManager.getTrackScheduler().getQueue().isEmpty()) musicManager.getTrackScheduler().setRepeatMode(null);
-        playerManager.loadItemOrdered(musicManager, trackUrl, new AudioLoader(musicManager, event, trackUrl, skipSelection));
+        playerManager.loadItemOrdered(musicManager, trackUrl, trackCache.caching(trackUrl, new AudioLoader(musicManager, event, trackUrl, skipSelection)));
+    }
+
+    private void reclaimIdle() {
+        long now = System.currentTimeMillis();
+        int playing = 0, paused = 0, idle = 0, reclaimed = 0;
+
+        for(Map.Entry<Long, GuildMusicManager> entry : musicManagers.entrySet()) {
+            GuildMusicManager musicManager = entry.getValue();
+            if(musicManager.getTrackScheduler().getCurrentTrack() != null) {
+                if(musicManager.getAudioPlayer().isPaused()) paused++;
+                else playing++;
+                continue;
+            }
+
+            //Checked again while removing, in case something started using it in the meantime.
+            if(musicManager.isIdle(now, IDLE_TIMEOUT) && musicManagers.remove(entry.getKey(), musicManager)) {
+                musicManager.destroy();
+                reclaimed++;
+            } else {
+                idle++;
+            }
+        }
+
+        if(reclaimed != 0) log.debug("Reclaimed {} idle music players", reclaimed);
+
+        MantaroBot bot = MantaroBot.getInstance();
+        if(bot == null) return;
+        bot.getStatsClient().gauge("music_players", playing, "state:playing");
+        bot.getStatsClient().gauge("music_players", paused, "state:paused");
+        bot.getStatsClient().gauge("music_players", idle, "state:idle");
+        bot.getStatsClient().gauge("music_queue_size", getTotalQueueSize());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,365 @@
+package net.kodehawa.mantarobot.commands.music;
+
+import com.google.common.primitives.Longs;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.VoiceChannel;
+import net.dv8tion.jda.core.managers.AudioManager;
+import net.kodehawa.mantarobot.commands.music.requester.TrackQueue;
+import net.kodehawa.mantarobot.commands.music.requester.TrackScheduler;
+import net.kodehawa.mantarobot.utils.SentryHelper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves what every guild is playing to disk as it goes, so the queues can be picked up again after a restart.
+ * <p>
+ * Every {@link #flush()} appends to a log only what changed since the last one: the whole state of a guild (voice and text channel, repeat
+ * mode, pause, position and its tracks encoded by lavaplayer) when its tracks or settings changed, just the position when only that moved,
+ * or a removal when it stopped playing. The log gets rewritten with only the current state once it grows well past it, and on startup.
+ * <p>
+ * Saved guilds are restored the first time their shard is ready ({@link #restore(JDA)}), seeking back to where they were, unless they were
+ * saved too long ago or something is playing there already. The same call reconnects players that are still around but lost their voice
+ * connection, like after a shard restart.
+ */
+@Slf4j
+public class QueueStore {
+    private static final byte FULL = 1, POSITION = 2, REMOVED = 3;
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(15), COMPACT_THRESHOLD = 4 * 1024 * 1024;
+    private final MantaroAudioManager audioManager;
+    private final File file;
+    //Saved and not restored yet, from the last run.
+    private final Map<Long, Snapshot> pending = new HashMap<>();
+    //What's in the log for the guilds playing right now.
+    private final Map<Long, Snapshot> saved = new HashMap<>();
+    private DataOutputStream out;
+    private long written, live;
+
+    public QueueStore(File file, MantaroAudioManager audioManager) {
+        this.file = file;
+        this.audioManager = audioManager;
+
+        try {
+            load();
+            compact();
+        } catch(IOException e) {
+            log.warn("Couldn't load the saved music queues", e);
+        }
+    }
+
+    /**
+     * Writes down what changed since the last time.
+     */
+    public synchronized void flush() {
+        long now = System.currentTimeMillis();
+        try {
+            if(out == null) compact();
+
+            for(Map.Entry<Long, GuildMusicManager> entry : audioManager.getMusicManagers().entrySet()) {
+                TrackScheduler scheduler = entry.getValue().getTrackScheduler();
+                AudioTrack current = scheduler.getCurrentTrack();
+                Snapshot last = saved.get(entry.getKey());
+                if(current == null) continue;
+
+                Guild guild = scheduler.getGuild();
+                VoiceChannel channel = guild == null ? null : guild.getAudioManager().getConnectedChannel();
+                long voiceChannel = channel != null ? channel.getIdLong() : last != null ? last.voiceChannel : 0;
+                //Never got to connect, there's nowhere to go back to.
+                if(voiceChannel == 0) continue;
+
+                long position = current.getPosition();
+                boolean paused = entry.getValue().getAudioPlayer().isPaused();
+                if(last == null || last.current != current || last.queueVersion != scheduler.getQueue().getVersion() || last.repeat != repeat(scheduler)
+                        || last.requestedChannel != scheduler.getRequestedChannel() || last.voiceChannel != voiceChannel) {
+                    Snapshot snapshot = snapshot(scheduler, current, voiceChannel);
+                    snapshot.savedAt = now;
+                    snapshot.position = position;
+                    snapshot.paused = paused;
+                    writeFull(out, entry.getKey(), snapshot);
+                    live += snapshot.tracks.length - (last == null ? 0 : last.tracks.length);
+                    saved.put(entry.getKey(), snapshot);
+                } else if(last.position != position || last.paused != paused) {
+                    last.savedAt = now;
+                    last.position = position;
+                    last.paused = paused;
+                    out.writeByte(POSITION);
+                    out.writeLong(entry.getKey());
+                    out.writeLong(now);
+                    out.writeLong(position);
+                    out.writeBoolean(paused);
+                    written += 26;
+                }
+            }
+
+            for(Iterator<Map.Entry<Long, Snapshot>> iterator = saved.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<Long, Snapshot> entry = iterator.next();
+                GuildMusicManager musicManager = audioManager.getMusicManagers().get(entry.getKey());
+                if(musicManager != null && musicManager.getTrackScheduler().getCurrentTrack() != null) continue;
+
+                out.writeByte(REMOVED);
+                out.writeLong(entry.getKey());
+                out.writeLong(now);
+                written += 17;
+                live -= entry.getValue().tracks.length;
+                iterator.remove();
+            }
+
+            out.flush();
+            if(written > COMPACT_THRESHOLD && written > live * 4) compact();
+        } catch(Exception e) {
+            log.warn("Couldn't save the music queues", e);
+            SentryHelper.captureExceptionContext("Couldn't save the music queues", e, this.getClass(), "Queue Store");
+            //Starts over from what's in memory next time, in case the log got cut in the middle of a record.
+            close();
+        }
+    }
+
+    /**
+     * Brings back the queues that were saved for the guilds of a shard, and reconnects the players of the shard that lost their connection.
+     * Meant to be called once the shard is ready, as many times as needed.
+     */
+    public void restore(JDA jda) {
+        Map<Guild, Snapshot> restoring = new HashMap<>();
+        Map<Guild, Long> reconnecting = new HashMap<>();
+        long now = System.currentTimeMillis();
+
+        synchronized(this) {
+            for(Iterator<Map.Entry<Long, Snapshot>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<Long, Snapshot> entry = iterator.next();
+                Guild guild = jda.getGuildById(entry.getKey());
+                if(guild == null && now - entry.getValue().savedAt < MAX_AGE) continue;
+
+                iterator.remove();
+                if(guild != null && now - entry.getValue().savedAt < MAX_AGE) restoring.put(guild, entry.getValue());
+            }
+
+            saved.forEach((id, snapshot) -> {
+                Guild guild = jda.getGuildById(id);
+                if(guild != null) reconnecting.put(guild, snapshot.voiceChannel);
+            });
+        }
+
+        restoring.forEach((guild, snapshot) -> {
+            try {
+                restore(guild, snapshot);
+            } catch(Exception e) {
+                log.debug("Couldn't restore the music queue of {}", guild.getId(), e);
+            }
+        });
+
+        reconnecting.forEach((guild, voiceChannel) -> {
+            AudioManager manager = guild.getAudioManager();
+            VoiceChannel channel = guild.getVoiceChannelById(voiceChannel);
+            if(channel == null || manager.isConnected() || manager.isAttemptingToConnect()) return;
+
+            try {
+                //Gets the player attached to the new connection.
+                audioManager.getMusicManager(guild);
+                manager.openAudioConnection(channel);
+            } catch(Exception e) {
+                log.debug("Couldn't reconnect the music player of {}", guild.getId(), e);
+            }
+        });
+    }
+
+    private void restore(Guild guild, Snapshot snapshot) throws IOException {
+        VoiceChannel channel = guild.getVoiceChannelById(snapshot.voiceChannel);
+        if(channel == null) return;
+
+        GuildMusicManager musicManager = audioManager.getMusicManager(guild);
+        TrackScheduler scheduler = musicManager.getTrackScheduler();
+        if(!scheduler.isStopped()) return;
+
+        List<AudioTrack> tracks = decode(snapshot);
+        if(tracks.isEmpty()) return;
+        if(tracks.get(0).isSeekable()) tracks.get(0).setPosition(snapshot.position);
+
+        guild.getAudioManager().openAudioConnection(channel);
+        scheduler.setRepeatMode(snapshot.repeat < 0 ? null : TrackScheduler.Repeat.values()[snapshot.repeat]);
+        scheduler.setRequestedChannel(snapshot.requestedChannel);
+        scheduler.queue(tracks);
+        musicManager.getAudioPlayer().setPaused(snapshot.paused);
+    }
+
+    private static byte repeat(TrackScheduler scheduler) {
+        return scheduler.getRepeatMode() == null ? -1 : (byte) scheduler.getRepeatMode().ordinal();
+    }
+
+    private Snapshot snapshot(TrackScheduler scheduler, AudioTrack current, long voiceChannel) throws IOException {
+        AudioPlayerManager playerManager = audioManager.getPlayerManager();
+        TrackQueue queue = scheduler.getQueue();
+        Snapshot snapshot = new Snapshot();
+        snapshot.current = current;
+        //Read first, so if the queue changes while encoding it, it gets saved again next time.
+        snapshot.queueVersion = queue.getVersion();
+        snapshot.voiceChannel = voiceChannel;
+        snapshot.requestedChannel = scheduler.getRequestedChannel();
+        snapshot.repeat = repeat(scheduler);
+
+        List<AudioTrack> tracks = new ArrayList<>(queue.size() + 1);
+        tracks.add(current);
+        queue.forEach(tracks::add);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(tracks.size() * 256);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(tracks.size());
+        for(AudioTrack track : tracks) {
+            Long requester = track.getUserData() == null ? null : Longs.tryParse(String.valueOf(track.getUserData()));
+            data.writeLong(requester == null ? 0 : requester);
+        }
+
+        MessageOutput output = new MessageOutput(bytes);
+        for(AudioTrack track : tracks) playerManager.encodeTrack(output, track);
+        output.finish();
+
+        snapshot.tracks = bytes.toByteArray();
+        return snapshot;
+    }
+
+    private List<AudioTrack> decode(Snapshot snapshot) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(snapshot.tracks);
+        DataInputStream data = new DataInputStream(bytes);
+        long[] requesters = new long[data.readInt()];
+        for(int i = 0; i < requesters.length; i++) requesters[i] = data.readLong();
+
+        List<AudioTrack> tracks = new ArrayList<>(requesters.length);
+        MessageInput input = new MessageInput(bytes);
+        DecodedTrackHolder holder;
+        while((holder = audioManager.getPlayerManager().decodeTrack(input)) != null) {
+            //Tracks from sources that aren't around anymore get skipped.
+            if(holder.decodedTrack == null) continue;
+            int index = tracks.size();
+            if(index < requesters.length && requesters[index] != 0) holder.decodedTrack.setUserData(String.valueOf(requesters[index]));
+            tracks.add(holder.decodedTrack);
+        }
+        return tracks;
+    }
+
+    private void writeFull(DataOutputStream out, long guildId, Snapshot snapshot) throws IOException {
+        out.writeByte(FULL);
+        out.writeLong(guildId);
+        out.writeLong(snapshot.savedAt);
+        out.writeLong(snapshot.voiceChannel);
+        out.writeLong(snapshot.requestedChannel);
+        out.writeByte(snapshot.repeat);
+        out.writeBoolean(snapshot.paused);
+        out.writeLong(snapshot.position);
+        out.writeInt(snapshot.tracks.length);
+        out.write(snapshot.tracks);
+        written += 47 + snapshot.tracks.length;
+    }
+
+    private void load() throws IOException {
+        if(!file.isFile()) return;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while(true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch(EOFException e) {
+                    return;
+                }
+
+                try {
+                    long guildId = in.readLong(), savedAt = in.readLong();
+                    if(type == FULL) {
+                        Snapshot snapshot = new Snapshot();
+                        snapshot.savedAt = savedAt;
+                        snapshot.voiceChannel = in.readLong();
+                        snapshot.requestedChannel = in.readLong();
+                        snapshot.repeat = in.readByte();
+                        snapshot.paused = in.readBoolean();
+                        snapshot.position = in.readLong();
+                        snapshot.tracks = new byte[in.readInt()];
+                        in.readFully(snapshot.tracks);
+                        pending.put(guildId, snapshot);
+                    } else if(type == POSITION) {
+                        long position = in.readLong();
+                        boolean paused = in.readBoolean();
+                        Snapshot snapshot = pending.get(guildId);
+                        if(snapshot != null) {
+                            snapshot.savedAt = savedAt;
+                            snapshot.position = position;
+                            snapshot.paused = paused;
+                        }
+                    } else if(type == REMOVED) {
+                        pending.remove(guildId);
+                    } else {
+                        log.warn("Unknown record in the saved music queues, ignoring the rest");
+                        return;
+                    }
+                } catch(EOFException e) {
+                    //The last record didn't get to be written completely.
+                    return;
+                }
+            }
+        }
+    }
+
+    //Rewrites the log with only what's still needed.
+    private void compact() throws IOException {
+        close();
+        long now = System.currentTimeMillis();
+        pending.values().removeIf(snapshot -> now - snapshot.savedAt >= MAX_AGE);
+
+        File temp = new File(file.getPath() + ".tmp");
+        written = live = 0;
+        try(DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            for(Map.Entry<Long, Snapshot> entry : pending.entrySet()) {
+                writeFull(compacted, entry.getKey(), entry.getValue());
+                live += entry.getValue().tracks.length;
+            }
+            for(Map.Entry<Long, Snapshot> entry : saved.entrySet()) {
+                writeFull(compacted, entry.getKey(), entry.getValue());
+                live += entry.getValue().tracks.length;
+            }
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private void close() {
+        if(out == null) return;
+        try {
+            out.close();
+        } catch(IOException ignored) {
+        }
+        out = null;
+    }
+
+    private static class Snapshot {
+        private long savedAt, voiceChannel, requestedChannel, position;
+        private byte repeat;
+        private boolean paused;
+        private byte[] tracks;
+        //Only for the guilds playing right now, to tell what changed.
+        private AudioTrack current;
+        private int queueVersion;
+    }
+}
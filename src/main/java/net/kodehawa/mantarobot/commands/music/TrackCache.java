@@ -0,0 +1,202 @@
+package net.kodehawa.mantarobot.commands.music;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.MantaroBot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers what searches and single track links resolved to, so playing them again doesn't need to ask YouTube or SoundCloud.
+ * <p>
+ * There are two caches shared by every guild on the node: one from what was looked up to the identifiers of the tracks it found, and one
+ * from identifier to the track, encoded by lavaplayer (which keeps the info and whatever the source needs to play it). Hits are decoded
+ * back into new tracks with {@link AudioPlayerManager#decodeTrack(MessageInput)}. Only the first results of searches are cached, not
+ * playlists. Hits and misses are sent to StatsD as {@code track_cache}.
+ * <p>
+ * Hits are served as the first source of the player manager, so they go through the same per-guild ordered loading as misses, and a cached
+ * song requested after one that isn't cached still gets queued after it. This source never owns any track itself.
+ */
+@Slf4j
+public class TrackCache implements AudioSourceManager {
+    private static final int MAX_QUERIES = 10000, MAX_SEARCH_RESULTS = 5;
+    private static final long MAX_TRACK_BYTES = 32 * 1024 * 1024;
+    private static final String[] SEARCH_PREFIXES = {"ytsearch:", "scsearch:"};
+    private final AudioPlayerManager playerManager;
+    private final Cache<String, String[]> queries = CacheBuilder.newBuilder()
+        .maximumSize(MAX_QUERIES)
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .build();
+    private final Cache<String, byte[]> tracks = CacheBuilder.newBuilder()
+        .maximumWeight(MAX_TRACK_BYTES)
+        .weigher((String identifier, byte[] track) -> identifier.length() * 2 + track.length)
+        .expireAfterWrite(6, TimeUnit.HOURS)
+        .build();
+
+    public TrackCache(AudioPlayerManager playerManager) {
+        this.playerManager = playerManager;
+    }
+
+    private static boolean isSearch(String query) {
+        for(String prefix : SEARCH_PREFIXES) {
+            if(query.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    //So "ytsearch: Song" and "ytsearch:song " are the same search. Links are left alone, they're case sensitive.
+    private static String key(String query) {
+        query = query.trim();
+        if(!isSearch(query)) return query;
+        int start = query.indexOf(':') + 1;
+        return query.substring(0, start) + query.substring(start).trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void stat(String result) {
+        MantaroBot bot = MantaroBot.getInstance();
+        if(bot != null) bot.getStatsClient().increment("track_cache", "result:" + result);
+    }
+
+    @Override
+    public String getSourceName() {
+        return "cache";
+    }
+
+    /**
+     * @return what the query was cached as, or null if it isn't cached, so the next source loads it.
+     */
+    @Override
+    public AudioItem loadItem(DefaultAudioPlayerManager manager, AudioReference reference) {
+        String query = reference.identifier, key = key(query);
+        String[] identifiers = queries.getIfPresent(key);
+        List<AudioTrack> found = identifiers == null ? null : decode(identifiers);
+        if(found == null) {
+            //Some of its tracks are gone, so it gets cached again once the other sources load it.
+            if(identifiers != null) queries.invalidate(key);
+            stat("miss");
+            return null;
+        }
+
+        stat("hit");
+        if(isSearch(query))
+            return new BasicAudioPlaylist("Search results for: " + query.substring(query.indexOf(':') + 1).trim(), found, null, true);
+        return found.get(0);
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track) {
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) {
+        //Never called, isTrackEncodable is false for everything.
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) {
+        return null;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    /**
+     * @return a handler that caches what gets loaded for the query, before passing it on.
+     */
+    public AudioLoadResultHandler caching(String query, AudioLoadResultHandler handler) {
+        return new AudioLoadResultHandler() {
+            @Override
+            public void trackLoaded(AudioTrack track) {
+                put(query, new AudioTrack[]{track});
+                handler.trackLoaded(track);
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist) {
+                List<AudioTrack> results = playlist.getTracks();
+                if(playlist.isSearchResult() && !results.isEmpty())
+                    put(query, results.subList(0, Math.min(MAX_SEARCH_RESULTS, results.size())).toArray(new AudioTrack[0]));
+                handler.playlistLoaded(playlist);
+            }
+
+            @Override
+            public void noMatches() {
+                handler.noMatches();
+            }
+
+            @Override
+            public void loadFailed(FriendlyException exception) {
+                handler.loadFailed(exception);
+            }
+        };
+    }
+
+    private void put(String query, AudioTrack[] found) {
+        //Already cached means it was served from the cache, putting it again would keep it from ever expiring.
+        if(queries.getIfPresent(key(query)) != null) return;
+
+        String[] identifiers = new String[found.length];
+        try {
+            for(int i = 0; i < found.length; i++) {
+                identifiers[i] = found[i].getIdentifier();
+                if(tracks.getIfPresent(identifiers[i]) == null) tracks.put(identifiers[i], encode(found[i]));
+            }
+        } catch(Exception e) {
+            log.debug("Couldn't cache the tracks for {}", query, e);
+            return;
+        }
+        queries.put(key(query), identifiers);
+    }
+
+    //Null if any of them was evicted or can't be decoded anymore.
+    private List<AudioTrack> decode(String[] identifiers) {
+        List<AudioTrack> found = new ArrayList<>(identifiers.length);
+        for(String identifier : identifiers) {
+            byte[] track = tracks.getIfPresent(identifier);
+            if(track == null) return null;
+
+            try {
+                DecodedTrackHolder holder = playerManager.decodeTrack(new MessageInput(new ByteArrayInputStream(track)));
+                if(holder == null || holder.decodedTrack == null) return null;
+                found.add(holder.decodedTrack);
+            } catch(IOException e) {
+                tracks.invalidate(identifier);
+                return null;
+            }
+        }
+        return found;
+    }
+
+    private byte[] encode(AudioTrack track) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        MessageOutput output = new MessageOutput(bytes);
+        playerManager.encodeTrack(output, track);
+        output.finish();
+        return bytes.toByteArray();
+    }
+}
@@ -11,8 +11,11 @@ import net.dv8tion.jda.core.hooks.EventListener;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.GuildMusicManager;
 import net.kodehawa.mantarobot.core.LoadState;
+import net.kodehawa.mantarobot.core.listeners.EventExecutor;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
+import static net.kodehawa.mantarobot.core.listeners.EventExecutor.EventQueue.VOICE;
+
 public class VoiceChannelListener implements EventListener {
 
     private static boolean validate(GuildVoiceState state) {
@@ -29,13 +32,13 @@ public class VoiceChannelListener implements EventListener {
         if(!MantaroBot.loadState.equals(LoadState.POSTLOAD)) return;
 
         if(event instanceof GuildVoiceMoveEvent) {
-            onGuildVoiceMove((GuildVoiceMoveEvent) event);
+            EventExecutor.execute(VOICE, () -> onGuildVoiceMove((GuildVoiceMoveEvent) event));
         } else if(event instanceof GuildVoiceJoinEvent) {
-            onGuildVoiceJoin((GuildVoiceJoinEvent) event);
+            EventExecutor.execute(VOICE, () -> onGuildVoiceJoin((GuildVoiceJoinEvent) event));
         } else if(event instanceof GuildVoiceLeaveEvent) {
-            onGuildVoiceLeave((GuildVoiceLeaveEvent) event);
+            EventExecutor.execute(VOICE, () -> onGuildVoiceLeave((GuildVoiceLeaveEvent) event));
         } else if(event instanceof GuildVoiceMuteEvent) {
-            onGuildVoiceMute((GuildVoiceMuteEvent) event);
+            EventExecutor.execute(VOICE, () -> onGuildVoiceMute((GuildVoiceMuteEvent) event));
         }
     }
 
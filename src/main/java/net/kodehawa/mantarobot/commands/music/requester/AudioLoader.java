@@ -13,15 +13,14 @@ import net.kodehawa.mantarobot.commands.music.GuildMusicManager;
 import net.kodehawa.mantarobot.commands.music.utils.AudioUtils;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.GuildData;
-import net.kodehawa.mantarobot.db.entities.helpers.ExtraGuildData;
 import net.kodehawa.mantarobot.utils.DiscordUtils;
 import net.kodehawa.mantarobot.utils.SentryHelper;
 import net.kodehawa.mantarobot.utils.Utils;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -32,6 +31,9 @@ public class AudioLoader implements AudioLoadResultHandler {
     private GuildMusicManager musicManager;
     private boolean skipSelection;
     private String trackUrl;
+    //Read once per load, instead of once per track.
+    private GuildData dbGuild;
+    private boolean premium;
 
     public AudioLoader(GuildMusicManager musicManager, GuildMessageReceivedEvent event, String trackUrl, boolean skipSelection) {
         this.musicManager = musicManager;
@@ -42,45 +44,19 @@ public class AudioLoader implements AudioLoadResultHandler {
 
     @Override
     public void trackLoaded(AudioTrack track) {
-        loadSingle(track, false);
+        loadSingle(track);
     }
 
     @Override
     public void playlistLoaded(AudioPlaylist playlist) {
         if (playlist.isSearchResult()) {
             if (!skipSelection) onSearch(playlist);
-            else loadSingle(playlist.getTracks().get(0), false);
+            else loadSingle(playlist.getTracks().get(0));
             return;
         }
 
         try {
-            int i = 0;
-            for (AudioTrack track : playlist.getTracks()) {
-                if (MantaroData.db().getGuild(event.getGuild()).getData().getMusicQueueSizeLimit() != null) {
-                    if (i < MantaroData.db().getGuild(event.getGuild()).getData().getMusicQueueSizeLimit()) {
-                        loadSingle(track, true);
-                    } else {
-                        event.getChannel().sendMessage(String.format(":warning: The queue you added had more than %d songs, so we added songs until this limit and ignored the rest.", MantaroData.db().getGuild(event.getGuild()).getData().getMusicQueueSizeLimit())).queue();
-                        break;
-                    }
-                } else {
-                    if (i < MAX_QUEUE_LENGTH) {
-                        loadSingle(track, true);
-                    } else {
-                        event.getChannel().sendMessage(":warning: The queue you added had more than 300 songs, so we added songs until this limit and ignored the rest.").queue();
-                        break;
-                    }
-                }
-                i++;
-            }
-
-            event.getChannel().sendMessage(String.format(
-                    "%sAdded **%d songs** to queue on playlist: **%s** *(%s)*",
-                    EmoteReference.CORRECT,
-                    i,
-                    playlist.getName(),
-                    Utils.getDurationMinutes(playlist.getTracks().stream().mapToLong(temp -> temp.getInfo().length).sum())
-            )).queue();
+            loadPlaylist(playlist);
         } catch (Exception e) {
             SentryHelper.captureExceptionContext(
                     "Cannot load playlist. I guess something broke pretty hard. Please check", e, this.getClass(), "Music Loader"
@@ -111,36 +87,99 @@ public class AudioLoader implements AudioLoadResultHandler {
         return musicManager;
     }
 
-    private void loadSingle(AudioTrack audioTrack, boolean silent) {
+    private void loadLimits() {
+        if (dbGuild != null) return;
+        dbGuild = MantaroData.db().getGuild(event.getGuild());
+        premium = dbGuild.isPremium() || MantaroData.db().getUser(event.getMember()).isPremium();
+    }
+
+    private long getQueueLimit() {
+        Long limit = dbGuild.getData().getMusicQueueSizeLimit();
+        return limit == null ? MAX_QUEUE_LENGTH : limit;
+    }
+
+    /**
+     * Checks the whole playlist against the limits of the guild in one go, then queues every track that passed at once.
+     */
+    private void loadPlaylist(AudioPlaylist playlist) {
+        long start = System.currentTimeMillis();
+        loadLimits();
+        TrackScheduler scheduler = musicManager.getTrackScheduler();
+
+        long queueLimit = getQueueLimit();
+        int queued = scheduler.getQueue().size();
+        List<AudioTrack> tracks = playlist.getTracks();
+        List<AudioTrack> accepted = new ArrayList<>((int) Math.min(tracks.size(), queueLimit));
+        int tooLong = 0, overLimit = 0;
+        long length = 0;
+
+        for (AudioTrack track : tracks) {
+            if (accepted.size() >= queueLimit || (!premium && queued + accepted.size() > queueLimit)) {
+                overLimit++;
+                continue;
+            }
+
+            if (!premium && track.getInfo().length > MAX_SONG_LENGTH) {
+                tooLong++;
+                continue;
+            }
+
+            track.setUserData(event.getAuthor().getId());
+            accepted.add(track);
+            length += track.getInfo().length;
+        }
+
+        scheduler.queue(accepted);
+        if (!accepted.isEmpty()) scheduler.setRequestedChannel(event.getChannel().getIdLong());
+
+        StringBuilder summary = new StringBuilder(String.format(
+                "%sAdded **%d songs** to queue on playlist: **%s** *(%s)*",
+                EmoteReference.CORRECT,
+                accepted.size(),
+                playlist.getName(),
+                Utils.getDurationMinutes(length)
+        ));
+        if (overLimit > 0)
+            summary.append(String.format("\n:warning: Ignored %d songs that went over the queue limit of %d songs.", overLimit, queueLimit));
+        if (tooLong > 0)
+            summary.append(String.format("\n:warning: Ignored %d songs that were longer than 30 minutes.", tooLong));
+        event.getChannel().sendMessage(summary.toString()).queue();
+
+        if (accepted.isEmpty() && scheduler.isStopped()) event.getGuild().getAudioManager().closeAudioConnection();
+
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        MantaroBot.getInstance().getStatsClient().count("tracks_loaded", accepted.size());
+        MantaroBot.getInstance().getStatsClient().histogram("playlist_ingest_time", elapsed);
+        MantaroBot.getInstance().getStatsClient().histogram("playlist_ingest_rate", tracks.size() * 1000L / elapsed);
+    }
+
+    private void loadSingle(AudioTrack audioTrack) {
         AudioTrackInfo trackInfo = audioTrack.getInfo();
         audioTrack.setUserData(event.getAuthor().getId());
-        GuildData dbGuild = MantaroData.db().getGuild(event.getGuild());
-        ExtraGuildData guildData = dbGuild.getData();
+        loadLimits();
 
         String title = trackInfo.title;
         long length = trackInfo.length;
 
-        long queueLimit = !Optional.ofNullable(dbGuild.getData().getMusicQueueSizeLimit()).isPresent() ? MAX_QUEUE_LENGTH :
-                dbGuild.getData().getMusicQueueSizeLimit();
-        int fqSize = guildData.getMaxFairQueue();
+        long queueLimit = getQueueLimit();
+        int fqSize = dbGuild.getData().getMaxFairQueue();
 
-        if (getMusicManager().getTrackScheduler().getQueue().size() > queueLimit && !MantaroData.db().getUser(event.getMember()).isPremium() && !dbGuild.isPremium()) {
-            if (!silent)
-                event.getChannel().sendMessage(String.format(":warning: Could not queue %s: Surpassed queue song limit!", title)).queue(
-                        message -> message.delete().queueAfter(30, TimeUnit.SECONDS)
-                );
+        if (getMusicManager().getTrackScheduler().getQueue().size() > queueLimit && !premium) {
+            event.getChannel().sendMessage(String.format(":warning: Could not queue %s: Surpassed queue song limit!", title)).queue(
+                    message -> message.delete().queueAfter(30, TimeUnit.SECONDS)
+            );
             if (musicManager.getTrackScheduler().isStopped()) event.getGuild().getAudioManager().closeAudioConnection();
             return;
         }
 
-        if (audioTrack.getInfo().length > MAX_SONG_LENGTH && !MantaroData.db().getUser(event.getMember()).isPremium() && !dbGuild.isPremium()) {
+        if (audioTrack.getInfo().length > MAX_SONG_LENGTH && !premium) {
             event.getChannel().sendMessage(String.format(":warning: Could not queue %s: Track is longer than 30 minutes! (%s)", title, AudioUtils.getLength(length))).queue();
             if (musicManager.getTrackScheduler().isStopped()) event.getGuild().getAudioManager().closeAudioConnection();
             return;
         }
 
         //Comparing if the URLs are the same to be 100% sure they're just not spamming the same url over and over again.
-        if (musicManager.getTrackScheduler().getQueue().stream().filter(track -> track.getInfo().uri.equals(audioTrack.getInfo().uri)).count() > fqSize && !silent) {
+        if (musicManager.getTrackScheduler().getQueue().count(audioTrack.getInfo().uri) > fqSize) {
             event.getChannel().sendMessage(EmoteReference.ERROR + String.format("**Surpassed fair queue level of %d (Too many songs which are exactly equal)**", fqSize + 1)).queue();
             return;
         }
@@ -148,11 +187,9 @@ public class AudioLoader implements AudioLoadResultHandler {
         musicManager.getTrackScheduler().queue(audioTrack);
         musicManager.getTrackScheduler().setRequestedChannel(event.getChannel().getIdLong());
 
-        if (!silent) {
-            event.getChannel().sendMessage(
-                    String.format("\uD83D\uDCE3 Added to queue -> **%s** **(%s)**", title, AudioUtils.getLength(length))
-            ).queue();
-        }
+        event.getChannel().sendMessage(
+                String.format("\uD83D\uDCE3 Added to queue -> **%s** **(%s)**", title, AudioUtils.getLength(length))
+        ).queue();
 
         MantaroBot.getInstance().getStatsClient().increment("tracks_loaded");
     }
@@ -165,7 +202,7 @@ public class AudioLoader implements AudioLoadResultHandler {
                         .setThumbnail("http://www.clipartbest.com/cliparts/jix/6zx/jix6zx4dT.png")
                         .setDescription(s)
                         .setFooter("This timeouts in 10 seconds.", null).build(),
-                selected -> loadSingle(selected, false)
+                selected -> loadSingle(selected)
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,237 @@
+package net.kodehawa.mantarobot.commands.music.requester;
+
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The tracks waiting to be played on a guild, in order.
+ * <p>
+ * Tracks are kept in a circular array, so they can be looked up by position and taken from either end in constant time, and removing one from
+ * the middle only shifts the shorter side. How many times each URI is queued and the total duration are updated as tracks go in and out, so
+ * neither needs going through the whole queue. Every method locks the queue, which only the commands and the player of one guild use.
+ */
+public class TrackQueue implements Iterable<AudioTrack> {
+    private static final int INITIAL_CAPACITY = 16;
+    private final LongAdder totalQueueSize;
+    private final TObjectIntMap<String> uris = new TObjectIntHashMap<>();
+    //Always a power of two, so positions wrap around with a mask.
+    private AudioTrack[] tracks = new AudioTrack[INITIAL_CAPACITY];
+    private long duration;
+    private int head, size, version;
+
+    /**
+     * @param totalQueueSize the counter of the tracks queued on every guild, which this queue keeps up to date.
+     */
+    public TrackQueue(LongAdder totalQueueSize) {
+        this.totalQueueSize = totalQueueSize;
+    }
+
+    /**
+     * @return a number that changes every time the tracks or their order change.
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the sum of the lengths of every queued track, in milliseconds.
+     */
+    public synchronized long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return how many of the queued tracks have this URI.
+     */
+    public synchronized int count(String uri) {
+        return uri == null ? 0 : uris.get(uri);
+    }
+
+    public synchronized AudioTrack get(int index) {
+        checkIndex(index);
+        return tracks[slot(index)];
+    }
+
+    public synchronized void offer(AudioTrack track) {
+        grow(1);
+        tracks[slot(size++)] = track;
+        added(track);
+        version++;
+    }
+
+    public synchronized void addAll(Collection<? extends AudioTrack> tracks) {
+        grow(tracks.size());
+        for(AudioTrack track : tracks) {
+            this.tracks[slot(size++)] = track;
+            added(track);
+        }
+        version++;
+    }
+
+    /**
+     * @return the first track, or null if the queue is empty.
+     */
+    public synchronized AudioTrack peek() {
+        return size == 0 ? null : tracks[head];
+    }
+
+    /**
+     * Removes the first track.
+     *
+     * @return the track that was removed, or null if the queue is empty.
+     */
+    public synchronized AudioTrack poll() {
+        if(size == 0) return null;
+        return remove(0);
+    }
+
+    /**
+     * @return the track that was at that position.
+     * @throws IndexOutOfBoundsException if there's no track at that position.
+     */
+    public synchronized AudioTrack remove(int index) {
+        checkIndex(index);
+        AudioTrack track = tracks[slot(index)];
+
+        //Close the gap from whichever end is nearer.
+        if(index < size / 2) {
+            for(int i = index; i > 0; i--) tracks[slot(i)] = tracks[slot(i - 1)];
+            tracks[head] = null;
+            head = slot(1);
+        } else {
+            for(int i = index; i < size - 1; i++) tracks[slot(i)] = tracks[slot(i + 1)];
+            tracks[slot(size - 1)] = null;
+        }
+
+        size--;
+        removed(track);
+        version++;
+        return track;
+    }
+
+    /**
+     * Removes the tracks at every one of the positions at once, so the positions refer to the queue as it was before removing any of them.
+     * Positions with no track are ignored.
+     *
+     * @return how many tracks were removed.
+     */
+    public synchronized int removeAll(int... indices) {
+        boolean[] remove = new boolean[size];
+        for(int index : indices) {
+            if(index >= 0 && index < size) remove[index] = true;
+        }
+
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            AudioTrack track = tracks[slot(i)];
+            if(remove[i]) removed(track);
+            else tracks[slot(kept++)] = track;
+        }
+
+        int removed = size - kept;
+        for(int i = kept; i < size; i++) tracks[slot(i)] = null;
+        size = kept;
+        version++;
+        return removed;
+    }
+
+    public synchronized void clear() {
+        totalQueueSize.add(-size);
+        Arrays.fill(tracks, null);
+        uris.clear();
+        duration = 0;
+        head = size = 0;
+        version++;
+    }
+
+    public synchronized void shuffle(Random random) {
+        for(int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            AudioTrack track = tracks[slot(i)];
+            tracks[slot(i)] = tracks[slot(j)];
+            tracks[slot(j)] = track;
+        }
+        version++;
+    }
+
+    /**
+     * Goes through the tracks in order while holding the lock, so nothing changes the queue in the meantime. Keep the action short.
+     */
+    @Override
+    public synchronized void forEach(Consumer<? super AudioTrack> action) {
+        for(int i = 0; i < size; i++) action.accept(tracks[slot(i)]);
+    }
+
+    /**
+     * @return an iterator that looks up each position as it goes, so it never fails, but may skip or repeat tracks if the queue changes while
+     * going through it. Use {@link #forEach(Consumer)} for a consistent view.
+     */
+    @Override
+    public Iterator<AudioTrack> iterator() {
+        return new Iterator<AudioTrack>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public AudioTrack next() {
+                synchronized(TrackQueue.this) {
+                    if(index >= size) throw new NoSuchElementException();
+                    return tracks[slot(index++)];
+                }
+            }
+        };
+    }
+
+    private int slot(int index) {
+        return (head + index) & (tracks.length - 1);
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private void grow(int extra) {
+        if(size + extra <= tracks.length) return;
+
+        int capacity = Integer.highestOneBit(size + extra - 1) << 1;
+        AudioTrack[] grown = new AudioTrack[capacity];
+        for(int i = 0; i < size; i++) grown[i] = tracks[slot(i)];
+        tracks = grown;
+        head = 0;
+    }
+
+    private void added(AudioTrack track) {
+        totalQueueSize.increment();
+        duration += track.getInfo().length;
+        String uri = track.getInfo().uri;
+        if(uri != null) uris.adjustOrPutValue(uri, 1, 1);
+    }
+
+    private void removed(AudioTrack track) {
+        totalQueueSize.decrement();
+        duration -= track.getInfo().length;
+        String uri = track.getInfo().uri;
+        if(uri != null && uris.adjustOrPutValue(uri, -1, 0) <= 0) uris.remove(uri);
+    }
+}
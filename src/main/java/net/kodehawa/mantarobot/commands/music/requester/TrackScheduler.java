@@ -21,18 +21,16 @@ import net.kodehawa.mantarobot.shard.MantaroShard;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.LongAdder;
 
 public class TrackScheduler extends AudioEventAdapter {
     @Getter
     private final AudioPlayer audioPlayer;
     @Getter
-    private final BlockingQueue<AudioTrack> queue;
+    private final TrackQueue queue;
     private String guildId;
     @Getter
     @Setter
@@ -41,14 +39,18 @@ public class TrackScheduler extends AudioEventAdapter {
     private List<String> voteSkips;
     @Getter
     private List<String> voteStop;
+    @Getter
     @Setter
     private long requestedChannel;
     @Getter
     private AudioTrack previousTrack, currentTrack;
+    //When the queue last ran out, or 0 if it's playing.
+    @Getter
+    private volatile long stoppedSince = System.currentTimeMillis();
 
-    public TrackScheduler(AudioPlayer player, String guildId) {
+    public TrackScheduler(AudioPlayer player, String guildId, LongAdder totalQueueSize) {
         this.audioPlayer = player;
-        this.queue = new LinkedBlockingQueue<>();
+        this.queue = new TrackQueue(totalQueueSize);
         this.guildId = guildId;
         this.voteSkips = new ArrayList<>();
         this.voteStop = new ArrayList<>();
@@ -60,6 +62,23 @@ public class TrackScheduler extends AudioEventAdapter {
         } else {
             currentTrack = track;
         }
+        stoppedSince = 0;
+    }
+
+    /**
+     * Queues every track in order, starting the first one if nothing is playing. The rest are added to the queue in one go.
+     */
+    public void queue(List<AudioTrack> tracks) {
+        if(tracks.isEmpty()) return;
+
+        int first = 0;
+        if(audioPlayer.startTrack(tracks.get(0), true)) {
+            currentTrack = tracks.get(0);
+            first = 1;
+        }
+
+        queue.addAll(tracks.subList(first, tracks.size()));
+        stoppedSince = 0;
     }
 
     public void nextTrack(boolean force, boolean skip) {
@@ -133,11 +152,7 @@ public class TrackScheduler extends AudioEventAdapter {
     }
 
     public void shuffle() {
-        List<AudioTrack> tempList = new ArrayList<>(getQueue());
-        Collections.shuffle(tempList);
-
-        queue.clear();
-        queue.addAll(tempList);
+        queue.shuffle(ThreadLocalRandom.current());
     }
 
     public MantaroShard getShard() {
@@ -154,14 +169,8 @@ public class TrackScheduler extends AudioEventAdapter {
         onStop();
     }
 
-    public void getQueueAsList(Consumer<List<AudioTrack>> list) {
-        List<AudioTrack> tempList = new ArrayList<>(getQueue());
-        list.accept(tempList);
-        queue.clear();
-        queue.addAll(tempList);
-    }
-
     private void onStop() {
+        stoppedSince = System.currentTimeMillis();
         getVoteStop().clear();
         getVoteSkips().clear();
 
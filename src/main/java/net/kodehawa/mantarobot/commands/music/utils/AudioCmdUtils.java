@@ -83,7 +83,7 @@ public class AudioCmdUtils {
                         .setColor(Color.CYAN).setDescription("Nothing here, just dust. Why don't you go back some pages?")
                         .setThumbnail("http://www.clipartbest.com/cliparts/jix/6zx/jix6zx4dT.png").build()).queue();
             } else {
-                long length = musicManager.getTrackScheduler().getQueue().stream().mapToLong(value -> value.getInfo().length).sum();
+                long length = musicManager.getTrackScheduler().getQueue().getDuration();
                 EmbedBuilder builder = new EmbedBuilder()
                         .setAuthor("Queue for server " + guild.getName(), null, guild.getIconUrl())
                         .setColor(Color.CYAN);
@@ -109,7 +109,7 @@ public class AudioCmdUtils {
         }
 
         DiscordUtils.list(event, 30, false, (p, total) -> {
-            long length = musicManager.getTrackScheduler().getQueue().stream().mapToLong(value -> value.getInfo().length).sum();
+            long length = musicManager.getTrackScheduler().getQueue().getDuration();
             EmbedBuilder builder = new EmbedBuilder()
                     .setAuthor("Queue for server " + guild.getName(), null, guild.getIconUrl())
                     .setColor(Color.CYAN);
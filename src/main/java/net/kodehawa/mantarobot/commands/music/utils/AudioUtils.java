@@ -2,8 +2,8 @@ package net.kodehawa.mantarobot.commands.music.utils;
 
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.commands.music.requester.TrackQueue;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 public class AudioUtils {
@@ -14,10 +14,10 @@ public class AudioUtils {
         );
     }
 
-    public static String getQueueList(BlockingQueue<AudioTrack> queue) {
+    public static String getQueueList(TrackQueue queue) {
         StringBuilder sb = new StringBuilder();
-        int n = 1;
-        for(AudioTrack audioTrack : queue) {
+        int[] n = {1};
+        queue.forEach(audioTrack -> {
             long aDuration = audioTrack.getDuration();
             String duration = String.format("%02d:%02d",
                     TimeUnit.MILLISECONDS.toMinutes(aDuration),
@@ -27,7 +27,7 @@ public class AudioUtils {
             String title = audioTrack.getInfo().title;
             if(title.length() > 30) title = title.substring(0, 30) + "...";
             sb.append("**")
-                    .append(n)
+                    .append(n[0]++)
                     .append(". [")
                     .append(title)
                     .append("](")
@@ -37,8 +37,7 @@ public class AudioUtils {
                     .append(")")
                     .append(audioTrack.getUserData() != null ? " **[" + MantaroBot.getInstance().getUserById(String.valueOf(audioTrack.getUserData())).getName() + "]**" : "")
                     .append("\n");
-            n++;
-        }
+        });
         return sb.toString();
     }
 
@@ -2,6 +2,7 @@ package net.kodehawa.mantarobot.core;
 
 import com.rethinkdb.gen.exc.ReqlError;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
@@ -10,7 +11,6 @@ import net.kodehawa.mantarobot.db.entities.GuildData;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.data.Config;
 import net.kodehawa.mantarobot.data.MantaroData;
-import net.kodehawa.mantarobot.db.entities.helpers.ExtraGuildData;
 import net.kodehawa.mantarobot.modules.CommandRegistry;
 import net.kodehawa.mantarobot.modules.commands.AliasCommand;
 import net.kodehawa.mantarobot.modules.commands.base.Category;
@@ -21,10 +21,10 @@ import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 import static net.kodehawa.mantarobot.utils.StringUtils.splitArgs;
 
@@ -36,6 +36,11 @@ public class CommandProcessorAndRegistry implements CommandRegistry {
     public static int commandTotal = 0;
 
     private final Map<String, Command> commands = new HashMap<>();
+    @Getter
+    private final PrefixMatcher prefixMatcher = new PrefixMatcher(MantaroData.config().get().prefix);
+    //Custom commands only exist in their guild, so they're looked up by guild when there's no regular command with that name.
+    @Setter
+    private volatile BiFunction<Long, String, Command> customCommandResolver = (guildId, name) -> null;
 
     public Map<String, Command> commands() {
         return commands;
@@ -54,39 +59,52 @@ public class CommandProcessorAndRegistry implements CommandRegistry {
         register(o, new AliasCommand(o, commands.get(c)));
     }
 
-    public void run(GuildMessageReceivedEvent event) {
-        //Global Blacklist
-        if (MantaroData.db().getMantaroData().getBlackListedUsers().contains(event.getAuthor().getId())) return;
+    /**
+     * Peeks at the category of the command a message would trigger, without touching the database.
+     *
+     * @param rawContent   the raw content of the message.
+     * @param prefixLength the length of the prefix, as given by {@link PrefixMatcher#match(long, String)}, or {@link PrefixMatcher#UNKNOWN}.
+     * @return the category of the command, or null if there's no such command.
+     */
+    public Category categoryOf(String rawContent, int prefixLength) {
+        if (prefixLength < 0) return null;
+        int end = rawContent.indexOf(' ', prefixLength);
+        Command cmd = commands.get(end == -1 ? rawContent.substring(prefixLength) : rawContent.substring(prefixLength, end));
+        return cmd == null ? null : cmd.category();
+    }
 
+    public void run(GuildMessageReceivedEvent event) {
         //Stats, Apparently
         long start = System.currentTimeMillis();
 
         //Command Processing
-        Config conf = MantaroData.config().get();
         String rawCmd = event.getMessage().getRawContent();
-        String[] prefix = conf.prefix;
-        String customPrefix = MantaroData.db().getGuild(event.getGuild()).getData().getGuildCustomPrefix();
-
-        String usedPrefix = null;
-        for (String s : prefix) {
-            if (rawCmd.startsWith(s)) usedPrefix = s;
+        long guildId = event.getGuild().getIdLong();
+        int prefixLength = prefixMatcher.match(guildId, rawCmd);
+        if (prefixLength == PrefixMatcher.UNKNOWN) {
+            //First message of this guild since startup or the last resync, the guild cache has its prefix.
+            prefixMatcher.learn(guildId, MantaroData.db().getGuild(event.getGuild()).getData().getGuildCustomPrefix());
+            prefixLength = prefixMatcher.match(guildId, rawCmd);
         }
+        if (prefixLength < 0) return;
 
-        if (usedPrefix != null && rawCmd.startsWith(usedPrefix)) rawCmd = rawCmd.substring(usedPrefix.length());
-        else if (customPrefix != null && rawCmd.startsWith(customPrefix)) rawCmd = rawCmd.substring(customPrefix.length());
-        else if (usedPrefix == null) return;
+        //Global Blacklist
+        if (MantaroData.db().isUserBlacklisted(event.getAuthor().getIdLong())) return;
+
+        Config conf = MantaroData.config().get();
+        rawCmd = rawCmd.substring(prefixLength);
 
         String[] parts = splitArgs(rawCmd, 2);
         String cmdName = parts[0], content = parts[1];
 
         //Grab some stuff
         Command cmd = commands.get(cmdName);
-
-        GuildData dbg = MantaroData.db().getGuild(event.getGuild());
-        ExtraGuildData data = dbg.getData();
+        if (cmd == null) cmd = customCommandResolver.apply(event.getGuild().getIdLong(), cmdName);
 
         if (cmd == null) return;
 
+        GuildData dbg = MantaroData.db().getGuild(event.getGuild());
+
         //CHECKS. A LOT OF THEM.
         if (!event.getGuild().getSelfMember().getPermissions(event.getChannel()).contains(Permission.MESSAGE_EMBED_LINKS)) {
             event.getChannel().sendMessage(EmoteReference.STOP + "I require the permission ``Embed Links``. " +
@@ -96,21 +114,8 @@ public class CommandProcessorAndRegistry implements CommandRegistry {
             return;
         }
 
-        if (data.getDisabledCommands().contains(cmdName)) {
-            return;
-        }
-
-        if (data.getChannelSpecificDisabledCommands().get(event.getChannel().getId()) != null &&
-            data.getChannelSpecificDisabledCommands().get(event.getChannel().getId()).contains(cmdName)) {
-            return;
-        }
-
-        if (data.getDisabledUsers().contains(event.getAuthor().getId())) {
-            return;
-        }
-
-        if (MantaroData.db().getGuild(event.getGuild()).getData().getDisabledChannels().contains(event.getChannel().getId()) && cmd
-            .category() != Category.MODERATION) {
+        //Disabled commands, categories, channels and users.
+        if (!dbg.getDispatchPolicy().isAllowed(cmdName, cmd.category(), event.getChannel().getIdLong(), event.getAuthor().getIdLong())) {
             return;
         }
 
@@ -118,14 +123,6 @@ public class CommandProcessorAndRegistry implements CommandRegistry {
             return;
         }
 
-        if (data.getDisabledCategories().contains(cmd.category())) {
-            return;
-        }
-
-        if (data.getChannelSpecificDisabledCategories().computeIfAbsent(event.getChannel().getId(), wew -> new ArrayList<>()).contains(cmd.category())) {
-            return;
-        }
-
         //If we are in the patreon bot, deny all requests from unknown guilds.
         if (conf.isPremiumBot() && !conf.isOwner(event.getAuthor()) && !dbg.isPremium()) {
             event.getChannel().sendMessage(
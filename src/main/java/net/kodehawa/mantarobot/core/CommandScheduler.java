@@ -0,0 +1,157 @@
+package net.kodehawa.mantarobot.core;
+
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.modules.commands.base.Category;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs commands for a shard on a fixed amount of workers.
+ * <p>
+ * Pending commands are taken by priority of their {@link Category} (moderation first, fun/image last) and then by arrival. A guild can't run
+ * more than {@code perGuild} commands at once; anything over that waits in a small per-guild backlog, so a single noisy guild or a slow API
+ * can't take every worker of the shard. Commands that don't fit in that backlog are dropped, and counted as {@code commands_dropped}; the
+ * first one dropped since the backlog last had room gets logged and its submitter told, so the guild knows why it's being ignored.
+ * <p>
+ * The time a command waits before running is sent to StatsD as {@code command_queue_time}.
+ */
+@Slf4j
+public class CommandScheduler {
+    private static final int MAX_WAITING_PER_GUILD = 10;
+    private final Map<Long, GuildSlot> guilds = new ConcurrentHashMap<>();
+    private final int perGuild;
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public CommandScheduler(int workers, int perGuild, ThreadFactory threadFactory) {
+        this.perGuild = perGuild;
+        for (int i = 0; i < workers; i++) {
+            threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * @param category the category of the command, or null if it's not known yet.
+     * @return the priority the command will run with. Lower runs first.
+     */
+    public static int priority(Category category) {
+        if (category == null) return 1;
+
+        switch (category) {
+            case OWNER:
+            case MODERATION:
+                return 0;
+            case FUN:
+            case IMAGE:
+            case ACTION:
+            case GAMES:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * @param onDropped called if the command gets dropped and it's the first one since the backlog of the guild last had room.
+     */
+    public void submit(long guildId, Category category, Runnable runnable, Runnable onDropped) {
+        Task task = new Task(guildId, priority(category), sequence.getAndIncrement(), runnable);
+        boolean[] notify = new boolean[1];
+
+        guilds.compute(guildId, (id, slot) -> {
+            if (slot == null) slot = new GuildSlot();
+
+            if (slot.running < perGuild) {
+                slot.running++;
+                queue.add(task);
+            } else if (slot.waiting.size() < MAX_WAITING_PER_GUILD) {
+                slot.waiting.add(task);
+            } else {
+                MantaroBot.getInstance().getStatsClient().increment("commands_dropped");
+                notify[0] = !slot.dropping;
+                slot.dropping = true;
+            }
+
+            return slot;
+        });
+
+        if (notify[0]) {
+            log.info("Guild {} has {} commands waiting, dropping its commands until some of them run", guildId, MAX_WAITING_PER_GUILD);
+            onDropped.run();
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void release(long guildId) {
+        guilds.computeIfPresent(guildId, (id, slot) -> {
+            Task next = slot.waiting.poll();
+            if (next != null) {
+                queue.add(next);
+                slot.dropping = false;
+                return slot;
+            }
+
+            return --slot.running == 0 ? null : slot;
+        });
+    }
+
+    private void work() {
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                log.error("Command worker interrupted, stopping...");
+                return;
+            }
+
+            MantaroBot.getInstance().getStatsClient().histogram("command_queue_time", System.currentTimeMillis() - task.queued);
+            try {
+                task.runnable.run();
+            } catch (Exception e) {
+                log.warn("Unexpected exception on command worker", e);
+            } finally {
+                release(task.guildId);
+            }
+        }
+    }
+
+    private static class GuildSlot {
+        private final Deque<Task> waiting = new ArrayDeque<>();
+        private int running;
+        //Whether commands have been dropped since the backlog last had room.
+        private boolean dropping;
+    }
+
+    private static class Task implements Comparable<Task> {
+        private final long guildId;
+        private final int priority;
+        private final long queued = System.currentTimeMillis();
+        private final Runnable runnable;
+        private final long sequence;
+
+        Task(long guildId, int priority, long sequence, Runnable runnable) {
+            this.guildId = guildId;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            if (priority != o.priority) return Integer.compare(priority, o.priority);
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
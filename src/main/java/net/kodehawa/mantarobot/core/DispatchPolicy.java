@@ -0,0 +1,103 @@
+package net.kodehawa.mantarobot.core;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.kodehawa.mantarobot.db.entities.helpers.ExtraGuildData;
+import net.kodehawa.mantarobot.modules.commands.base.Category;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The command filters of a guild (disabled commands, categories, channels and users), compiled from its {@link ExtraGuildData} so
+ * {@link CommandProcessorAndRegistry} can decide whether a command can run with a few constant time lookups.
+ * <p>
+ * Instances are immutable. {@link net.kodehawa.mantarobot.db.entities.GuildData#getDispatchPolicy()} builds one on first use and drops it
+ * whenever the guild is saved, so it always matches the stored options.
+ */
+public class DispatchPolicy {
+    private final long disabledCategories;
+    private final TLongSet disabledChannels;
+    private final Set<String> disabledCommands;
+    private final TLongSet disabledUsers;
+    private final TLongLongMap channelDisabledCategories;
+    private final TLongObjectMap<Set<String>> channelDisabledCommands;
+
+    private DispatchPolicy(ExtraGuildData data) {
+        disabledCategories = mask(data.getDisabledCategories());
+        disabledChannels = ids(data.getDisabledChannels());
+        disabledCommands = Collections.unmodifiableSet(new HashSet<>(data.getDisabledCommands()));
+        disabledUsers = ids(data.getDisabledUsers());
+
+        channelDisabledCategories = new TLongLongHashMap();
+        for (Map.Entry<String, List<Category>> entry : data.getChannelSpecificDisabledCategories().entrySet()) {
+            long mask = mask(entry.getValue());
+            long id = id(entry.getKey());
+            if (mask != 0 && id != 0) channelDisabledCategories.put(id, mask);
+        }
+
+        channelDisabledCommands = new TLongObjectHashMap<>();
+        for (Map.Entry<String, List<String>> entry : data.getChannelSpecificDisabledCommands().entrySet()) {
+            long id = id(entry.getKey());
+            if (entry.getValue() != null && !entry.getValue().isEmpty() && id != 0)
+                channelDisabledCommands.put(id, Collections.unmodifiableSet(new HashSet<>(entry.getValue())));
+        }
+    }
+
+    public static DispatchPolicy of(ExtraGuildData data) {
+        return new DispatchPolicy(data);
+    }
+
+    private static long bit(Category category) {
+        return category == null ? 0 : 1L << category.ordinal();
+    }
+
+    private static long id(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException | NullPointerException e) {
+            return 0;
+        }
+    }
+
+    private static TLongSet ids(Collection<String> ids) {
+        TLongSet set = new TLongHashSet(ids.size());
+        for (String id : ids) {
+            long l = id(id);
+            if (l != 0) set.add(l);
+        }
+        return set;
+    }
+
+    private static long mask(Collection<Category> categories) {
+        long mask = 0;
+        if (categories == null) return mask;
+        for (Category category : categories) mask |= bit(category);
+        return mask;
+    }
+
+    /**
+     * @return whether the command can be run in this channel, by this user, according to the guild filters.
+     */
+    public boolean isAllowed(String commandName, Category category, long channelId, long userId) {
+        if (disabledCommands.contains(commandName)) return false;
+
+        Set<String> channelCommands = channelDisabledCommands.get(channelId);
+        if (channelCommands != null && channelCommands.contains(commandName)) return false;
+
+        if (disabledUsers.contains(userId)) return false;
+
+        if (category != Category.MODERATION && disabledChannels.contains(channelId)) return false;
+
+        long bit = bit(category);
+        return (disabledCategories & bit) == 0 && (channelDisabledCategories.get(channelId) & bit) == 0;
+    }
+}
@@ -0,0 +1,111 @@
+package net.kodehawa.mantarobot.core;
+
+import gnu.trove.map.TCharObjectMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TCharObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.kodehawa.mantarobot.db.PrefixListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds which prefix (if any) a message starts with, without allocating and without touching the database.
+ * <p>
+ * Global prefixes are indexed by their first character, so most messages are rejected with a single map lookup. Custom prefixes are only
+ * known for the guilds of this node that sent messages: the first message of a guild that isn't a command by a global prefix is
+ * {@link #UNKNOWN}, and whoever runs it looks the prefix up once with {@link #learn(long, String)}. {@link
+ * net.kodehawa.mantarobot.db.ManagedDatabase} keeps the known ones updated as guilds get saved or changed remotely, and clears them all when
+ * its changefeed resyncs, so they're looked up again. The custom prefix map is copied on write, as prefixes change very rarely compared to how
+ * often they're read.
+ */
+public class PrefixMatcher implements PrefixListener {
+    /**
+     * Returned by {@link #match(long, String)} when the message doesn't start with a global prefix and the custom prefix of the guild isn't
+     * known yet.
+     */
+    public static final int UNKNOWN = -2;
+    //Known to have no custom prefix. Compared by reference.
+    private static final String NONE = new String();
+    private final TCharObjectMap<String[]> globalPrefixes = new TCharObjectHashMap<>();
+    private volatile TLongObjectMap<String> customPrefixes = new TLongObjectHashMap<>();
+
+    public PrefixMatcher(String[] prefixes) {
+        TCharObjectMap<List<String>> grouped = new TCharObjectHashMap<>();
+        for (String prefix : prefixes) {
+            if (prefix == null || prefix.isEmpty()) continue;
+            List<String> list = grouped.get(prefix.charAt(0));
+            if (list == null) grouped.put(prefix.charAt(0), list = new ArrayList<>());
+            list.add(prefix);
+        }
+
+        //Longest first, so "~>>" would win over "~>"
+        grouped.forEachEntry((c, list) -> {
+            String[] array = list.toArray(new String[0]);
+            Arrays.sort(array, Comparator.comparingInt(String::length).reversed());
+            globalPrefixes.put(c, array);
+            return true;
+        });
+    }
+
+    /**
+     * @param guildId the guild the message was sent in.
+     * @param content the raw content of the message.
+     * @return the length of the prefix the message starts with, -1 if it isn't a command, or {@link #UNKNOWN}.
+     */
+    public int match(long guildId, String content) {
+        if (content.isEmpty()) return -1;
+
+        String[] candidates = globalPrefixes.get(content.charAt(0));
+        if (candidates != null) {
+            for (String prefix : candidates) {
+                if (content.startsWith(prefix)) return prefix.length();
+            }
+        }
+
+        String custom = customPrefixes.get(guildId);
+        if (custom == null) return UNKNOWN;
+        if (custom != NONE && content.startsWith(custom)) return custom.length();
+
+        return -1;
+    }
+
+    /**
+     * Remembers the custom prefix of a guild that was looked up, unless it got one in the meantime.
+     *
+     * @param guildId the guild that was looked up.
+     * @param prefix  its custom prefix, or null if it doesn't have one.
+     */
+    public synchronized void learn(long guildId, String prefix) {
+        if (!customPrefixes.containsKey(guildId)) put(guildId, prefix);
+    }
+
+    @Override
+    public synchronized void setCustomPrefix(long guildId, String prefix) {
+        put(guildId, prefix);
+    }
+
+    @Override
+    public synchronized void updateCustomPrefix(long guildId, String prefix) {
+        if (customPrefixes.containsKey(guildId)) put(guildId, prefix);
+    }
+
+    @Override
+    public synchronized void clear() {
+        customPrefixes = new TLongObjectHashMap<>();
+    }
+
+    private void put(long guildId, String prefix) {
+        if (prefix == null || prefix.isEmpty()) prefix = NONE;
+
+        TLongObjectMap<String> current = customPrefixes;
+        String old = current.get(guildId);
+        if (old != null && (old == NONE ? prefix == NONE : old.equals(prefix))) return;
+
+        TLongObjectMap<String> copy = new TLongObjectHashMap<>(current);
+        copy.put(guildId, prefix);
+        customPrefixes = copy;
+    }
+}
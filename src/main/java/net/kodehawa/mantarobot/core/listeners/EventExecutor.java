@@ -0,0 +1,74 @@
+package net.kodehawa.mantarobot.core.listeners;
+
+import br.com.brjdevs.java.utils.async.Async;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.MantaroBot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared, bounded executors for the work listeners do off the JDA event thread. This used to be a new thread per event.
+ * <p>
+ * Each {@link EventQueue} has its own fixed pool and bounded queue, so a flood of one kind of event (a raid, a purge) can't starve the others.
+ * When a queue is full, events that are safe to lose (message moderation, logs) get dropped, and the rest are run on the calling thread,
+ * which slows the shard down instead of losing them.
+ * <p>
+ * Queue depth, queue latency and dropped events are sent to StatsD, tagged by queue.
+ */
+@Slf4j
+public class EventExecutor {
+    static {
+        Async.task("Event Queue Reporter", () -> {
+            for (EventQueue queue : EventQueue.values()) {
+                MantaroBot.getInstance().getStatsClient().gauge("event_queue_depth", queue.executor.getQueue().size(), queue.tag);
+            }
+        }, 10, TimeUnit.SECONDS);
+    }
+
+    public static void execute(EventQueue queue, Runnable task) {
+        long queued = System.currentTimeMillis();
+        queue.executor.execute(() -> {
+            MantaroBot.getInstance().getStatsClient().histogram("event_queue_latency", System.currentTimeMillis() - queued, queue.tag);
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("Unexpected exception while processing an event on queue {}", queue.queueName, e);
+            }
+        });
+    }
+
+    public enum EventQueue {
+        MESSAGES("messages", 8, 5000, true),
+        LOGS("logs", 4, 2000, true),
+        MEMBERS("members", 4, 2000, false),
+        GUILDS("guilds", 2, 500, false),
+        VOICE("voice", 2, 500, false);
+
+        private final ThreadPoolExecutor executor;
+        private final String queueName;
+        private final String tag;
+
+        EventQueue(String name, int threads, int capacity, boolean droppable) {
+            this.queueName = name;
+            this.tag = "queue:" + name;
+
+            RejectedExecutionHandler onFull = droppable ? (r, executor) -> {
+                MantaroBot.getInstance().getStatsClient().increment("event_queue_dropped", tag);
+            } : (r, executor) -> {
+                MantaroBot.getInstance().getStatsClient().increment("event_queue_caller_runs", tag);
+                if (!executor.isShutdown()) r.run();
+            };
+
+            this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                new ThreadFactoryBuilder().setNameFormat("EventExecutor[" + name + "] Thread-%d").setDaemon(true).build(),
+                onFull
+            );
+        }
+    }
+}
@@ -9,6 +9,7 @@ import net.dv8tion.jda.core.entities.*;
 import net.dv8tion.jda.core.events.DisconnectEvent;
 import net.dv8tion.jda.core.events.Event;
 import net.dv8tion.jda.core.events.ExceptionEvent;
+import net.dv8tion.jda.core.events.ReadyEvent;
 import net.dv8tion.jda.core.events.StatusChangeEvent;
 import net.dv8tion.jda.core.events.guild.GuildBanEvent;
 import net.dv8tion.jda.core.events.guild.GuildJoinEvent;
@@ -27,6 +28,7 @@ import net.kodehawa.mantarobot.commands.currency.RateLimiter;
 import net.kodehawa.mantarobot.commands.custom.EmbedJSON;
 import net.kodehawa.mantarobot.commands.info.GuildStatsManager;
 import net.kodehawa.mantarobot.commands.info.GuildStatsManager.LoggedEvent;
+import net.kodehawa.mantarobot.commands.music.MantaroAudioManager;
 import net.kodehawa.mantarobot.core.LoadState;
 import net.kodehawa.mantarobot.core.ShardMonitorEvent;
 import net.kodehawa.mantarobot.core.listeners.command.CommandListener;
@@ -49,8 +51,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import static net.kodehawa.mantarobot.core.listeners.EventExecutor.EventQueue.*;
 import static net.kodehawa.mantarobot.commands.custom.Mapifier.dynamicResolve;
-import static net.kodehawa.mantarobot.commands.custom.Mapifier.map;
+import static net.kodehawa.mantarobot.commands.custom.Mapifier.tokens;
 
 @Slf4j
 public class MantaroListener implements EventListener {
@@ -113,50 +116,57 @@ public class MantaroListener implements EventListener {
         if (event instanceof GuildMessageReceivedEvent) {
             MantaroBot.getInstance().getStatsClient().increment("messages_received");
             GuildMessageReceivedEvent e = (GuildMessageReceivedEvent) event;
-            Async.thread("BirthdayThread", () -> onMessage(e));
+            EventExecutor.execute(MESSAGES, () -> onMessage(e));
             return;
         }
 
         //Log intensifies
         if (event instanceof GuildMessageUpdateEvent) {
-            Async.thread("LogThread(Edit)", () -> logEdit((GuildMessageUpdateEvent) event));
+            EventExecutor.execute(LOGS, () -> logEdit((GuildMessageUpdateEvent) event));
             return;
         }
 
         if (event instanceof GuildMessageDeleteEvent) {
-            Async.thread("LogThread(Delete)", () -> logDelete((GuildMessageDeleteEvent) event));
+            EventExecutor.execute(LOGS, () -> logDelete((GuildMessageDeleteEvent) event));
             return;
         }
 
         if (event instanceof GuildMemberJoinEvent) {
-            Async.thread("LogThread(Join)", () -> onUserJoin((GuildMemberJoinEvent) event));
+            EventExecutor.execute(MEMBERS, () -> onUserJoin((GuildMemberJoinEvent) event));
             return;
         }
 
         if (event instanceof GuildMemberLeaveEvent) {
-            Async.thread("LogThread(Leave)", () -> onUserLeave((GuildMemberLeaveEvent) event));
+            EventExecutor.execute(MEMBERS, () -> onUserLeave((GuildMemberLeaveEvent) event));
             return;
         }
 
         if (event instanceof GuildUnbanEvent) {
-            Async.thread("LogThread(Unban)", () -> logUnban((GuildUnbanEvent) event));
+            EventExecutor.execute(LOGS, () -> logUnban((GuildUnbanEvent) event));
             return;
         }
 
         if (event instanceof GuildBanEvent) {
-            Async.thread("LogThread(Ban)", () -> logBan((GuildBanEvent) event));
+            EventExecutor.execute(LOGS, () -> logBan((GuildBanEvent) event));
             return;
         }
 
         if (event instanceof GuildJoinEvent) {
             MantaroBot.getInstance().getStatsClient().gauge("guilds", MantaroBot.getInstance().getGuilds().size());
-            Async.thread("LogThread(GuildJoin)", () -> onJoin((GuildJoinEvent) event));
+            EventExecutor.execute(GUILDS, () -> onJoin((GuildJoinEvent) event));
             return;
         }
 
         if (event instanceof GuildLeaveEvent) {
             MantaroBot.getInstance().getStatsClient().gauge("guilds", MantaroBot.getInstance().getGuilds().size());
-            Async.thread("LogThread(GuildLeave)", () -> onLeave((GuildLeaveEvent) event));
+            EventExecutor.execute(GUILDS, () -> onLeave((GuildLeaveEvent) event));
+        }
+
+        //Shards that come back after the bot started, pick up the music where they left it.
+        if (event instanceof ReadyEvent) {
+            //Only there once every shard started, and MantaroBot restores all of them itself then.
+            MantaroAudioManager audioManager = MantaroBot.getInstance().getAudioManager();
+            if (audioManager != null) EventExecutor.execute(VOICE, () -> audioManager.getQueueStore().restore(event.getJDA()));
         }
 
         //debug
@@ -341,9 +351,8 @@ public class MantaroListener implements EventListener {
     private void onJoin(GuildJoinEvent event) {
         try {
 
-            if (MantaroData.db().getMantaroData().getBlackListedGuilds().contains(event.getGuild().getId())
-                || MantaroData.db().getMantaroData().getBlackListedUsers().contains(
-                event.getGuild().getOwner().getUser().getId())) {
+            if (MantaroData.db().isGuildBlacklisted(event.getGuild().getIdLong())
+                || MantaroData.db().isUserBlacklisted(event.getGuild().getOwner().getUser().getIdLong())) {
                 event.getGuild().leave().queue();
                 return;
             }
@@ -362,7 +371,7 @@ public class MantaroListener implements EventListener {
             outOfSightProcessing.addAll(event.getGuild().getMembers().stream().map(Member::getUser).collect(Collectors.toList()));
 
             MantaroBot.getInstance().getStatsClient().increment("guild_leave");
-            MantaroBot.getInstance().getAudioManager().getMusicManagers().remove(event.getGuild().getId());
+            MantaroBot.getInstance().getAudioManager().removeMusicManager(event.getGuild().getIdLong());
             GuildStatsManager.log(LoggedEvent.LEAVE);
         } catch (Exception e) {
             if (!(e instanceof NullPointerException) && !(e instanceof IllegalArgumentException)) {
@@ -408,7 +417,7 @@ public class MantaroListener implements EventListener {
 
         //Slow mode
         if(guildData.isSlowMode()) {
-            if (!slowModeLimiter.process(event.getAuthor().getId())) {
+            if (!slowModeLimiter.process(event.getAuthor())) {
                 Member bot = event.getGuild().getSelfMember();
                 if(bot.hasPermission(Permission.MESSAGE_MANAGE) || bot.hasPermission(Permission.ADMINISTRATOR)
                     && !event.getMember().hasPermission(Permission.ADMINISTRATOR) && !event.getMember().hasPermission(Permission.MANAGE_SERVER)) {
@@ -424,7 +433,7 @@ public class MantaroListener implements EventListener {
 
         //Anti-spam. Allows 2 messages every 3 seconds.
         if(guildData.isAntiSpam()) {
-            if (!spamModeLimiter.process(event.getAuthor().getId())) {
+            if (!spamModeLimiter.process(event.getAuthor())) {
                 Member bot = event.getGuild().getSelfMember();
                 if(bot.hasPermission(Permission.MESSAGE_MANAGE) || bot.hasPermission(Permission.ADMINISTRATOR)
                         && !event.getMember().hasPermission(Permission.ADMINISTRATOR) && !event.getMember().hasPermission(Permission.MANAGE_SERVER)) {
@@ -503,11 +512,7 @@ public class MantaroListener implements EventListener {
             if (joinChannel != null && joinMessage != null) {
                 TextChannel tc = event.getGuild().getTextChannelById(joinChannel);
 
-                if (joinMessage.contains("$(")) {
-                    Map<String, String> dynamicMap = new HashMap<>();
-                    map("event", dynamicMap, event);
-                    joinMessage = dynamicResolve(joinMessage, dynamicMap);
-                }
+                joinMessage = dynamicResolve(joinMessage, tokens(event));
 
                 int c = joinMessage.indexOf(':');
                 if (c != -1) {
@@ -556,11 +561,7 @@ public class MantaroListener implements EventListener {
             if (leaveChannel != null && leaveMessage != null) {
                 TextChannel tc = event.getGuild().getTextChannelById(leaveChannel);
 
-                if (leaveMessage.contains("$(")) {
-                    Map<String, String> dynamicMap = new HashMap<>();
-                    map("event", dynamicMap, event);
-                    leaveMessage = dynamicResolve(leaveMessage, dynamicMap);
-                }
+                leaveMessage = dynamicResolve(leaveMessage, tokens(event));
 
                 int c = leaveMessage.indexOf(':');
                 if (c != -1) {
@@ -9,12 +9,13 @@ import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.events.Event;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.core.hooks.EventListener;
-import net.kodehawa.mantarobot.db.entities.UserData;
+import net.kodehawa.mantarobot.db.XpAccumulator;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.core.CommandProcessorAndRegistry;
+import net.kodehawa.mantarobot.core.PrefixMatcher;
 import net.kodehawa.mantarobot.core.ShardMonitorEvent;
-import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.shard.MantaroShard;
+import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
 import java.util.Random;
 
@@ -24,6 +25,8 @@ public class CommandListener implements EventListener {
     //Message cache of 5000 messages. If it reaches 5000 it will delete the first one stored, and continue being 5000
     @Getter
     private static final Cache<String, Message> messageCache = CacheBuilder.newBuilder().concurrencyLevel(10).maximumSize(5000).build();
+    //Experience given for chatting is written in batches, see XpAccumulator.
+    private static final XpAccumulator XP_ACCUMULATOR = new XpAccumulator();
 
     private final Random random = new Random();
     private final int shardId;
@@ -57,22 +60,22 @@ public class CommandListener implements EventListener {
             ) return;
             // @formatter:on
 
-            shard.getCommandPool().execute(() -> PROCESSOR.run(event));
+            //Most messages aren't commands, so don't even bother the command workers with them. Unless the custom prefix of the guild isn't
+            //known yet, in which case a worker looks it up, and it might not be a command at all, so don't complain if it gets dropped.
+            String rawContent = event.getMessage().getRawContent();
+            int prefixLength = PROCESSOR.getPrefixMatcher().match(event.getGuild().getIdLong(), rawContent);
+            if (prefixLength != -1) {
+                shard.getCommandScheduler().submit(
+                    event.getGuild().getIdLong(), PROCESSOR.categoryOf(rawContent, prefixLength), () -> PROCESSOR.run(event),
+                    prefixLength == PrefixMatcher.UNKNOWN ? () -> {} : () -> event.getChannel().sendMessage(
+                        EmoteReference.STOPWATCH + "This server is sending commands faster than I can run them, slow down a bit! Commands sent until the current ones finish will be ignored."
+                    ).queue()
+                );
+            }
 
             if (random.nextInt(15) > 10) {
-                if (event.getMember() == null) return;
-                UserData player = MantaroData.db().getPlayer(event.getMember());
-                if(event.getMember().getUser().isBot()) return;
-                if (player != null) {
-                    if (player.getLevel() == 0) player.setLevel(1);
-                    player.setXp(player.getXp() + Math.round(random.nextInt(6)));
-
-                    if (player.getXp() > (player.getLevel() * Math.log10(player.getLevel()) * 1000)) {
-                        player.setLevel(player.getLevel() + 1);
-                    }
-
-                    player.saveAsync();
-                }
+                if (event.getMember() == null || event.getMember().getUser().isBot()) return;
+                XP_ACCUMULATOR.add(event.getAuthor().getIdLong(), random.nextInt(6));
             }
         }
     }
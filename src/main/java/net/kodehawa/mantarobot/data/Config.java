@@ -16,6 +16,8 @@ public class Config {
     public String carbonToken;
     public String cleverbotKey;
     public String cleverbotUser;
+    public int commandWorkers = 8; //fixed command threads per shard
+    public int commandsPerGuild = 2; //commands a single guild can run at once in a shard
     public int connectionWatcherPort = 26000;
     public String consoleChannel = "266231083341840385";
     public String crossBotHost;
@@ -23,6 +25,7 @@ public class Config {
     public boolean crossBotServer = false;
     public String dbDb = "mantaro";
     public String dbHost = "localhost";
+    public int dbPoolSize = 4; //connections shared by every shard
     public int dbPort = 28015;
     public String dbotsToken;
     public String dbotsorgToken;
@@ -35,6 +38,7 @@ public class Config {
     public int shardWatcherWait = 600000; //run once every 600 seconds (10 minutes)
     public String sqlPassword;
     public String token;
+    public long urlCacheSize = 256 * 1024 * 1024; //bytes of downloaded images kept on disk
     public String weatherAppId;
     public boolean isPremiumBot = false;
     public String apiUrl = "127.0.0.1:4454";
@@ -1,7 +1,7 @@
 package net.kodehawa.mantarobot.data;
 
-import com.rethinkdb.net.Connection;
 import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.db.ConnectionPool;
 import net.kodehawa.mantarobot.db.ManagedDatabase;
 import net.kodehawa.mantarobot.utils.data.ConnectionWatcherDataManager;
 import net.kodehawa.mantarobot.utils.data.GsonDataManager;
@@ -14,9 +14,9 @@ import static com.rethinkdb.RethinkDB.r;
 
 public class MantaroData {
     private static GsonDataManager<Config> config;
-    private static Connection conn;
     private static ConnectionWatcherDataManager connectionWatcher;
     private static ManagedDatabase db;
+    private static volatile ConnectionPool pool;
     private static ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
 
     public static GsonDataManager<Config> config() {
@@ -24,12 +24,6 @@ public class MantaroData {
         return config;
     }
 
-    public static Connection conn() {
-        Config c = config().get();
-        if(conn == null) conn = r.connection().hostname(c.dbHost).port(c.dbPort).db(c.dbDb).connect();
-        return conn;
-    }
-
     public static ConnectionWatcherDataManager connectionWatcher() {
         if(connectionWatcher == null) {
             connectionWatcher = new ConnectionWatcherDataManager(MantaroBot.cwport);
@@ -38,10 +32,20 @@ public class MantaroData {
     }
 
     public static ManagedDatabase db() {
-        if(db == null) db = new ManagedDatabase(conn());
+        if(db == null) db = new ManagedDatabase(pool());
         return db;
     }
 
+    public static ConnectionPool pool() {
+        if(pool == null) {
+            synchronized(MantaroData.class) {
+                Config c = config().get();
+                if(pool == null) pool = new ConnectionPool(r.connection().hostname(c.dbHost).port(c.dbPort).db(c.dbDb), c.dbPoolSize);
+            }
+        }
+        return pool;
+    }
+
     public static ScheduledExecutorService getExecutor() {
         return exec;
     }
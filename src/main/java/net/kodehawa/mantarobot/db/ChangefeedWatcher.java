@@ -0,0 +1,113 @@
+package net.kodehawa.mantarobot.db;
+
+import br.com.brjdevs.java.utils.async.Async;
+import com.rethinkdb.net.Util;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.db.entities.GuildData;
+import net.kodehawa.mantarobot.db.entities.MantaroObject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static com.rethinkdb.RethinkDB.r;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
+
+/**
+ * Keeps the caches in {@link ManagedDatabase} in sync with writes done by other nodes (or the dashboard) to the same RethinkDB cluster.
+ * <p>
+ * Every watched table gets its own changefeed thread. Changes are pushed into the caches as they arrive. When a feed drops, it gets re-opened,
+ * and once it's ready again the affected cache is cleared, since whatever changed while the feed was down was missed.
+ * <p>
+ * The time each feed has been down for is sent to StatsD as {@code changefeed_lag}, tagged by table.
+ */
+@Slf4j
+public class ChangefeedWatcher {
+    private static final long RECONNECT_DELAY = 5000;
+    private final ManagedDatabase db;
+    private final List<Feed> feeds = new CopyOnWriteArrayList<>();
+
+    public ChangefeedWatcher(ManagedDatabase db) {
+        this.db = db;
+    }
+
+    public void start() {
+        watch(GuildData.DB_TABLE, GuildData.class, db::refreshGuild, db::invalidateGuilds);
+        watch(MantaroObject.DB_TABLE, MantaroObject.class, (id, obj) -> db.refreshMantaroData(obj), db::invalidateMantaroData);
+        //UserData isn't cached anywhere yet, so there's nothing to keep in sync for the users table.
+
+        Async.task("Changefeed Lag Reporter", () -> feeds.forEach(feed ->
+            MantaroBot.getInstance().getStatsClient().gauge("changefeed_lag", feed.lag(), "table:" + feed.table)
+        ), 10, TimeUnit.SECONDS);
+    }
+
+    private <T> void watch(String table, Class<T> pojoClass, BiConsumer<String, T> onChange, Runnable onResync) {
+        Feed feed = new Feed(table);
+        feeds.add(feed);
+
+        Async.thread("Changefeed Watcher [" + table + "]", () -> {
+            //noinspection InfiniteLoopStatement
+            while (true) {
+                try (PooledCursor<Map<String, Object>> cursor = pool().run(r.table(table).changes().optArg("include_states", true))) {
+                    while (cursor.hasNext()) {
+                        Map<String, Object> change = cursor.next();
+
+                        if (change.containsKey("state")) {
+                            if ("ready".equals(change.get("state"))) {
+                                //Anything that changed while we weren't listening is lost, so start over.
+                                onResync.run();
+                                feed.up();
+                            }
+                            continue;
+                        }
+
+                        Object newVal = change.get("new_val"), oldVal = change.get("old_val");
+                        @SuppressWarnings("unchecked")
+                        Object id = ((Map<String, Object>) (newVal != null ? newVal : oldVal)).get("id");
+                        onChange.accept(String.valueOf(id), Util.convertToPojo(newVal, Optional.of(pojoClass)));
+                        MantaroBot.getInstance().getStatsClient().increment("changefeed_changes", "table:" + table);
+                    }
+                } catch (Exception e) {
+                    log.warn("Changefeed on table {} dropped, reconnecting in {}ms", table, RECONNECT_DELAY, e);
+                }
+
+                feed.down();
+                MantaroBot.getInstance().getStatsClient().increment("changefeed_reconnects", "table:" + table);
+
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException e) {
+                    log.error("Changefeed watcher for table {} interrupted, stopping...", table);
+                    return;
+                }
+            }
+        });
+    }
+
+    private static class Feed {
+        private final String table;
+        //Starts as down, as nothing can be trusted until the feed says it's ready.
+        private volatile long downSince = System.currentTimeMillis();
+
+        Feed(String table) {
+            this.table = table;
+        }
+
+        void down() {
+            if (downSince == 0) downSince = System.currentTimeMillis();
+        }
+
+        void up() {
+            downSince = 0;
+        }
+
+        long lag() {
+            long since = downSince;
+            return since == 0 ? 0 : System.currentTimeMillis() - since;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package net.kodehawa.mantarobot.db;
+
+import br.com.brjdevs.java.utils.async.Async;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rethinkdb.ast.ReqlAst;
+import com.rethinkdb.gen.exc.ReqlDriverError;
+import com.rethinkdb.model.OptArgs;
+import com.rethinkdb.net.Connection;
+import com.rethinkdb.net.Cursor;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.MantaroBot;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.rethinkdb.RethinkDB.r;
+
+/**
+ * A fixed amount of RethinkDB connections shared by every shard, so a slow query or a dropped socket doesn't hold up everything else.
+ * <p>
+ * Queries run on the connection with the least queries in flight. A connection that fails with a {@link ReqlDriverError} gets replaced right
+ * away (the query that failed still throws), and every {@link #HEALTH_CHECK_INTERVAL} seconds all connections get pinged and replaced if they
+ * don't answer within {@link #PING_TIMEOUT} seconds. Queries that return a cursor hand out a {@link PooledCursor}, which keeps counting as in
+ * flight while it's open and gets its connection replaced the same way if reading it fails.
+ * <p>
+ * The queries in flight on each connection are sent to StatsD as {@code db_in_flight}, tagged by connection, and every replaced connection
+ * counts as a {@code db_reconnects}.
+ */
+@Slf4j
+public class ConnectionPool {
+    private static final int HEALTH_CHECK_INTERVAL = 30, PING_TIMEOUT = 5;
+    private final Connection.Builder builder;
+    //Pings run here, so one that never gets an answer (half-open sockets) doesn't hold up the health check.
+    private final ExecutorService pinger = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("Database Ping Thread-%d").setDaemon(true).build()
+    );
+    private final Slot[] slots;
+
+    public ConnectionPool(Connection.Builder builder, int size) {
+        this.builder = builder;
+        this.slots = new Slot[Math.max(1, size)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(i, builder.connect());
+        }
+
+        Async.task("Database Health Check", this::checkHealth, HEALTH_CHECK_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    public <T> T run(ReqlAst query) {
+        return borrow(connection -> query.run(connection));
+    }
+
+    public <T> T run(ReqlAst query, OptArgs optArgs) {
+        return borrow(connection -> query.run(connection, optArgs));
+    }
+
+    public <T, P> T run(ReqlAst query, Class<P> pojoClass) {
+        return borrow(connection -> query.run(connection, pojoClass));
+    }
+
+    public void runNoReply(ReqlAst query) {
+        borrow(connection -> {
+            query.runNoReply(connection);
+            return null;
+        });
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T borrow(Function<Connection, T> action) {
+        Slot slot = leastBusy();
+        Connection connection = slot.connection;
+        slot.inFlight.incrementAndGet();
+        boolean open = false;
+        try {
+            T result = action.apply(connection);
+            if (result instanceof Cursor) {
+                //Still in flight until whoever got it is done reading it.
+                result = (T) new PooledCursor<>((Cursor<?>) result, slot.inFlight::decrementAndGet, e -> reconnect(slot, connection, e));
+                open = true;
+            }
+            return result;
+        } catch (ReqlDriverError e) {
+            reconnect(slot, connection, e);
+            throw e;
+        } finally {
+            if (!open) slot.inFlight.decrementAndGet();
+        }
+    }
+
+    private Slot leastBusy() {
+        Slot slot = slots[0];
+        for (int i = 1; i < slots.length; i++) {
+            if (slots[i].inFlight.get() < slot.inFlight.get()) slot = slots[i];
+        }
+        return slot;
+    }
+
+    private void checkHealth() {
+        Connection[] connections = new Connection[slots.length];
+        Future<?>[] pings = new Future<?>[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            Connection connection = connections[i] = slot.connection;
+            MantaroBot.getInstance().getStatsClient().gauge("db_in_flight", slot.inFlight.get(), "connection:" + slot.index);
+            if (connection.isOpen()) pings[i] = pinger.submit(() -> {
+                r.expr(1).run(connection);
+            });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(PING_TIMEOUT);
+        for (int i = 0; i < slots.length; i++) {
+            if (pings[i] == null) {
+                reconnect(slots[i], connections[i], null);
+                continue;
+            }
+
+            try {
+                pings[i].get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                //Closing the connection on reconnect is what frees a ping that's still waiting.
+                pings[i].cancel(true);
+                reconnect(slots[i], connections[i], e);
+            }
+        }
+    }
+
+    /**
+     * @param slot   the slot to give a new connection to.
+     * @param broken the connection that failed.
+     * @param cause  what went wrong with it, if anything was thrown.
+     */
+    private void reconnect(Slot slot, Connection broken, Throwable cause) {
+        synchronized (slot) {
+            //Someone else already replaced it.
+            if (slot.connection != broken) return;
+
+            log.warn("Database connection #{} is broken, reconnecting...", slot.index, cause);
+            try {
+                broken.close(false);
+            } catch (Exception ignored) {
+            }
+
+            try {
+                slot.connection = builder.connect();
+                MantaroBot.getInstance().getStatsClient().increment("db_reconnects", "connection:" + slot.index);
+            } catch (Exception e) {
+                //Keep the broken one, the next health check will try again.
+                log.error("Couldn't reconnect database connection #{}", slot.index, e);
+            }
+        }
+    }
+
+    private static class Slot {
+        private final int index;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile Connection connection;
+
+        Slot(int index, Connection connection) {
+            this.index = index;
+            this.connection = connection;
+        }
+    }
+}
@@ -3,29 +3,62 @@ package net.kodehawa.mantarobot.db;
 import br.com.brjdevs.java.snowflakes.Snowflakes;
 import br.com.brjdevs.java.snowflakes.entities.Config;
 import br.com.brjdevs.java.snowflakes.entities.Worker;
-import com.rethinkdb.net.Connection;
-import com.rethinkdb.net.Cursor;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.rethinkdb.gen.exc.ReqlOpFailedError;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.db.entities.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static com.rethinkdb.RethinkDB.r;
 
+@Slf4j
 public class ManagedDatabase {
 	public static final Config MANTARO_FACTORY = Snowflakes.config(1495900000L, 2L, 2L, 12L);
-    public static final Worker ID_WORKER = MANTARO_FACTORY.worker(0, 0), LOG_WORKER = MANTARO_FACTORY.worker(0, 2);private final Connection conn;
+    public static final Worker ID_WORKER = MANTARO_FACTORY.worker(0, 0), LOG_WORKER = MANTARO_FACTORY.worker(0, 2);
+    //Guilds that haven't been looked up in this time get dropped, so only the ones that are talking stay in memory.
+    private static final int GUILD_CACHE_SIZE = 20000, GUILD_CACHE_IDLE_MINUTES = 30;
+    private final ConnectionPool pool;
+    //GuildData is looked up several times per message, so keep the active ones around. GuildData#save and GuildData#delete write through this.
+    //Nobody gets the cached instances themselves, only copies, so changes only count once they're saved.
+    private final Cache<String, GuildData> guildCache = CacheBuilder.newBuilder()
+        .concurrencyLevel(10)
+        .maximumSize(GUILD_CACHE_SIZE)
+        .expireAfterAccess(GUILD_CACHE_IDLE_MINUTES, TimeUnit.MINUTES)
+        .<String, GuildData>removalListener(notification -> {
+            if (notification.wasEvicted()) MantaroBot.getInstance().getStatsClient().increment("guild_cache_evictions");
+        })
+        .build();
+    //The "mantaro" document is read on every message (blacklists), kept up to date by ChangefeedWatcher and MantaroObject#save.
+    //Only ever replaced, never changed, as everyone else gets copies.
+    private volatile MantaroObject mantaroObject;
+    //Built from mantaroObject every time it changes, so blacklist checks don't scan the lists on every message.
+    private volatile Blacklist blacklist;
+    //Whoever keeps the custom prefixes of guilds, told about them as they change.
+    private volatile PrefixListener prefixListener;
 
-
-    public ManagedDatabase(Connection conn) {
-        this.conn = conn;
+    public ManagedDatabase(ConnectionPool pool) {
+        this.pool = pool;
     }
 
     public CustomCommand getCustomCommand(String guildId, String name) {
-        return r.table(CustomCommand.DB_TABLE).get(guildId + ":" + name).run(conn, CustomCommand.class);
+        return pool.run(r.table(CustomCommand.DB_TABLE)
+            .getAll(guildId).optArg("index", "guildId")
+            .filter(command -> command.g("commandName").eq(name))
+            .nth(0).default_((Object) null), CustomCommand.class);
     }
 
     public CustomCommand getCustomCommand(Guild guild, String name) {
@@ -41,13 +74,12 @@ public class ManagedDatabase {
     }
 
     public List<CustomCommand> getCustomCommands() {
-        Cursor<CustomCommand> c = r.table(CustomCommand.DB_TABLE).run(conn, CustomCommand.class);
+        PooledCursor<CustomCommand> c = pool.run(r.table(CustomCommand.DB_TABLE), CustomCommand.class);
         return c.toList();
     }
 
     public List<CustomCommand> getCustomCommands(String guildId) {
-        String pattern = '^' + guildId + ':';
-        Cursor<CustomCommand> c = r.table(CustomCommand.DB_TABLE).filter(quote -> quote.g("id").match(pattern)).run(conn, CustomCommand.class);
+        PooledCursor<CustomCommand> c = pool.run(r.table(CustomCommand.DB_TABLE).getAll(guildId).optArg("index", "guildId"), CustomCommand.class);
         return c.toList();
     }
 
@@ -56,21 +88,124 @@ public class ManagedDatabase {
     }
 
     public List<CustomCommand> getCustomCommandsByName(String name) {
-        String pattern = ':' + name + '$';
-        Cursor<CustomCommand> c = r.table(CustomCommand.DB_TABLE).filter(quote -> quote.g("id").match(pattern)).run(conn, CustomCommand.class);
+        PooledCursor<CustomCommand> c = pool.run(r.table(CustomCommand.DB_TABLE).getAll(name).optArg("index", "commandName"), CustomCommand.class);
         return c.toList();
     }
 
+    /**
+     * The results come in batches as the cursor gets read, so close it once you have enough.
+     *
+     * @param guildIds the guilds to search in.
+     * @param pattern  a regex the names of the commands have to match.
+     * @return the custom commands of those guilds whose name matches.
+     */
+    public PooledCursor<CustomCommand> searchCustomCommands(Collection<String> guildIds, String pattern) {
+        return pool.run(r.table(CustomCommand.DB_TABLE)
+            .getAll(guildIds.toArray()).optArg("index", "guildId")
+            .filter(command -> command.g("commandName").match(pattern)), CustomCommand.class);
+    }
+
+    /**
+     * Creates the secondary indexes the lookups in here use, if they don't exist yet, and waits for them to be ready.
+     */
+    public void createIndexes() {
+        createIndex(CustomCommand.DB_TABLE, "guildId");
+        createIndex(CustomCommand.DB_TABLE, "commandName");
+        createIndex(QuotedMessage.DB_TABLE, "guildId");
+    }
+
+    private void createIndex(String table, String index) {
+        List<String> indexes = pool.run(r.table(table).indexList());
+        if (!indexes.contains(index)) {
+            try {
+                pool.run(r.table(table).indexCreate(index));
+                log.info("Created index {} on table {}", index, table);
+            } catch (ReqlOpFailedError e) {
+                //Another node got to create it first.
+                log.debug("Couldn't create index {} on table {}", index, table, e);
+            }
+        }
+
+        pool.run(r.table(table).indexWait(index));
+    }
+
+    /**
+     * @return a copy of the guild, changes to it have to be saved to be seen by anyone else.
+     */
     public GuildData getGuild(String guildId) {
-        GuildData guild = r.table(GuildData.DB_TABLE).get(guildId).run(conn, GuildData.class);
-        return guild == null ? new GuildData(guildId) : guild;
+        GuildData cached = guildCache.getIfPresent(guildId);
+        if (cached != null) {
+            MantaroBot.getInstance().getStatsClient().increment("guild_cache_hits");
+            return cached.copy();
+        }
+
+        try {
+            //Concurrent misses for the same guild wait on a single load instead of each hitting the database.
+            return guildCache.get(guildId, () -> {
+                MantaroBot.getInstance().getStatsClient().increment("guild_cache_misses");
+                GuildData guild = pool.run(r.table(GuildData.DB_TABLE).get(guildId), GuildData.class);
+                return guild == null ? new GuildData(guildId) : guild;
+            }).copy();
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public void cacheGuild(GuildData guild) {
+        //Whoever saved it can keep changing their instance.
+        guildCache.put(guild.getId(), guild.copy());
+        prefixChanged(guild.getId(), guild.getData().getGuildCustomPrefix());
+    }
+
+    public void invalidateGuild(String guildId) {
+        guildCache.invalidate(guildId);
+        prefixChanged(guildId, null);
+    }
+
+    /**
+     * Drops every cached guild and every known custom prefix, as something might have changed without us knowing. Both are looked up again,
+     * guild by guild, as they get used.
+     */
+    public void invalidateGuilds() {
+        guildCache.invalidateAll();
+        PrefixListener listener = prefixListener;
+        if (listener != null) listener.clear();
+    }
+
+    /**
+     * Applies a change done somewhere else to the cached guild, if it's cached at all. Guilds this node doesn't know about are ignored, so
+     * changes to guilds on other nodes don't fill the cache.
+     *
+     * @param guildId the guild that changed.
+     * @param guild   the new value, or null if it was deleted.
+     */
+    public void refreshGuild(String guildId, GuildData guild) {
+        if (guild == null) guildCache.invalidate(guildId);
+        else guildCache.asMap().replace(guildId, guild);
+
+        //Only updated if it's known, so prefixes of guilds on other nodes aren't kept either.
+        PrefixListener listener = prefixListener;
+        if (listener != null)
+            listener.updateCustomPrefix(Long.parseLong(guildId), guild == null ? null : guild.getData().getGuildCustomPrefix());
+    }
+
+    /**
+     * Keeps the listener updated with the custom prefixes of the guilds that get saved, deleted or changed remotely from now on.
+     */
+    public void setPrefixListener(PrefixListener listener) {
+        prefixListener = listener;
+    }
+
+    private void prefixChanged(String guildId, String prefix) {
+        PrefixListener listener = prefixListener;
+        if (listener != null) listener.setCustomPrefix(Long.parseLong(guildId), prefix);
     }
 
     public Marriage getMarriage(String user) {
-        return r.table(Marriage.DB_TABLE)
+        return pool.run(r.table(Marriage.DB_TABLE)
             .getAll(user).optArg("index", "users")
-            .nth(0).default_(((Object) null))
-            .run(conn, Marriage.class);
+            .nth(0).default_(((Object) null)), Marriage.class);
     }
 
     public GuildData getGuild(Guild guild) {
@@ -85,9 +220,43 @@ public class ManagedDatabase {
         return getGuild(event.getGuild());
     }
 
+    /**
+     * @return a copy of the "mantaro" document, changes to it have to be saved to be seen by anyone else.
+     */
     public MantaroObject getMantaroData() {
-        MantaroObject obj = r.table(MantaroObject.DB_TABLE).get("mantaro").run(conn, MantaroObject.class);
-        return obj == null ? new MantaroObject() : obj;
+        MantaroObject cached = mantaroObject;
+        if (cached != null) return cached.copy();
+
+        MantaroObject obj = pool.run(r.table(MantaroObject.DB_TABLE).get("mantaro"), MantaroObject.class);
+        if (obj == null) obj = new MantaroObject();
+        refreshMantaroData(obj);
+        return obj.copy();
+    }
+
+    /**
+     * @param obj the new value, which nobody else may change from now on, or null to load it again on next use.
+     */
+    public void refreshMantaroData(MantaroObject obj) {
+        blacklist = obj == null ? null : new Blacklist(obj);
+        mantaroObject = obj;
+    }
+
+    public void invalidateMantaroData() {
+        refreshMantaroData(null);
+    }
+
+    public boolean isGuildBlacklisted(long guildId) {
+        return blacklist().guilds.contains(guildId);
+    }
+
+    public boolean isUserBlacklisted(long userId) {
+        return blacklist().users.contains(userId);
+    }
+
+    private Blacklist blacklist() {
+        Blacklist b = blacklist;
+        //Dropped by a resync, getMantaroData will build it again for the next call.
+        return b != null ? b : new Blacklist(getMantaroData());
     }
 
     @Deprecated
@@ -106,13 +275,12 @@ public class ManagedDatabase {
     }
 
     public List<PremiumKey> getPremiumKeys() {
-        Cursor<PremiumKey> c = r.table(PremiumKey.DB_TABLE).run(conn, PremiumKey.class);
+        PooledCursor<PremiumKey> c = pool.run(r.table(PremiumKey.DB_TABLE), PremiumKey.class);
         return c.toList();
     }
 
     public List<QuotedMessage> getQuotes(String guildId) {
-        String pattern = '^' + guildId + ':';
-        Cursor<QuotedMessage> c = r.table(QuotedMessage.DB_TABLE).filter(quote -> quote.g("id").match(pattern)).run(conn, QuotedMessage.class);
+        PooledCursor<QuotedMessage> c = pool.run(r.table(QuotedMessage.DB_TABLE).getAll(guildId).optArg("index", "guildId"), QuotedMessage.class);
         return c.toList();
     }
 
@@ -121,7 +289,7 @@ public class ManagedDatabase {
     }
 
     public UserData getUser(String userId) {
-        UserData user = r.table(UserData.DB_TABLE).get(userId).run(conn, UserData.class);
+        UserData user = pool.run(r.table(UserData.DB_TABLE).get(userId), UserData.class);
         return user == null ? new UserData(userId) : user;
     }
 
@@ -132,4 +300,24 @@ public class ManagedDatabase {
     public UserData getUser(Member member) {
         return getUser(member.getUser());
     }
+
+    private static class Blacklist {
+        private final TLongSet guilds, users;
+
+        Blacklist(MantaroObject obj) {
+            guilds = ids(obj.getBlackListedGuilds());
+            users = ids(obj.getBlackListedUsers());
+        }
+
+        private static TLongSet ids(List<String> ids) {
+            TLongSet set = new TLongHashSet(ids.size());
+            for (String id : ids) {
+                try {
+                    set.add(Long.parseLong(id));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            return set;
+        }
+    }
 }
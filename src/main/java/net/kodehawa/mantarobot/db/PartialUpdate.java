@@ -0,0 +1,75 @@
+package net.kodehawa.mantarobot.db;
+
+import com.rethinkdb.gen.ast.ReqlExpr;
+import com.rethinkdb.model.MapObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.rethinkdb.RethinkDB.r;
+
+/**
+ * Keeps track of the fields of a {@link ManagedObject} that changed since it was loaded or last saved, so only those get written.
+ * <p>
+ * Fields can either be set to a value, or incremented. Increments are applied on the database side, on top of whatever is stored at the time,
+ * so two commands giving money to the same user at the same time don't overwrite each other. An increment that would leave a field below
+ * zero makes the whole write fail instead, which the caller has to check for.
+ */
+public class PartialUpdate {
+    private final Map<String, Long> increments = new HashMap<>();
+    private final Map<String, Object> values = new HashMap<>();
+
+    /**
+     * @param field   the field that changed.
+     * @param delta   how much it changed by.
+     * @param current the value it has now, used instead if the field was already set to an absolute value.
+     */
+    public void increment(String field, long delta, long current) {
+        if (values.containsKey(field)) values.put(field, current);
+        else increments.merge(field, delta, Long::sum);
+    }
+
+    /**
+     * @param field the field that changed.
+     * @param value its new value. Mutable objects (maps, helpers) are read when saving, so later changes to them get written too.
+     */
+    public void set(String field, Object value) {
+        increments.remove(field);
+        values.put(field, value);
+    }
+
+    public void clear() {
+        increments.clear();
+        values.clear();
+    }
+
+    /**
+     * @return whether the field was set to an absolute value, rather than incremented or left alone.
+     */
+    public boolean isSet(String field) {
+        return values.containsKey(field);
+    }
+
+    public boolean isEmpty() {
+        return increments.isEmpty() && values.isEmpty();
+    }
+
+    /**
+     * @param row the stored document.
+     * @return an object to update or merge into the stored document with.
+     */
+    public MapObject<Object, Object> toReql(ReqlExpr row) {
+        MapObject<Object, Object> changes = r.hashMap();
+        values.forEach((field, value) -> {
+            //Without r.literal, nested objects would be merged into the stored ones, and removed keys (like sold items) would stay.
+            boolean nested = value != null && !(value instanceof String) && !(value instanceof Number) && !(value instanceof Boolean);
+            changes.with(field, nested ? r.literal(value) : value);
+        });
+        increments.forEach((field, delta) -> {
+            ReqlExpr updated = row.g(field).default_(0).add(delta);
+            //Counters in here can't go below zero. If two commands spend at the same time, the second one has to fail, not get it cheaper.
+            changes.with(field, r.branch(updated.lt(0), r.error("Not enough " + field), updated));
+        });
+        return changes;
+    }
+}
@@ -0,0 +1,89 @@
+package net.kodehawa.mantarobot.db;
+
+import com.rethinkdb.gen.exc.ReqlDriverError;
+import com.rethinkdb.net.Cursor;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Cursor} handed out by {@link ConnectionPool}. Reading it still uses the connection it was opened on, so it counts as in flight there
+ * until it's closed or read to the end, and a {@link ReqlDriverError} while reading it gets the connection replaced, just like one thrown while
+ * running the query.
+ * <p>
+ * Close it once you're done with it, unless you read it to the end.
+ */
+public class PooledCursor<T> implements Iterator<T>, Iterable<T>, Closeable {
+    private final Cursor<T> cursor;
+    private final Runnable release;
+    private final Consumer<ReqlDriverError> broken;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    PooledCursor(Cursor<T> cursor, Runnable release, Consumer<ReqlDriverError> broken) {
+        this.cursor = cursor;
+        this.release = release;
+        this.broken = broken;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            boolean hasNext = cursor.hasNext();
+            if (!hasNext) release();
+            return hasNext;
+        } catch (ReqlDriverError e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public T next() {
+        try {
+            return cursor.next();
+        } catch (ReqlDriverError e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads everything that's left.
+     */
+    public List<T> toList() {
+        try {
+            return cursor.toList();
+        } catch (ReqlDriverError e) {
+            fail(e);
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    @Override
+    public void close() {
+        try {
+            cursor.close();
+        } finally {
+            release();
+        }
+    }
+
+    private void fail(ReqlDriverError e) {
+        release();
+        broken.accept(e);
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) release.run();
+    }
+}
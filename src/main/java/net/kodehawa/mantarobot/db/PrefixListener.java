@@ -0,0 +1,27 @@
+package net.kodehawa.mantarobot.db;
+
+/**
+ * Gets told about the custom prefixes of guilds by {@link ManagedDatabase}, as guilds get saved, changed remotely or resynced.
+ */
+public interface PrefixListener {
+    /**
+     * A guild of this node was saved or deleted.
+     *
+     * @param guildId the guild to update.
+     * @param prefix  the new custom prefix, or null if the guild doesn't have one anymore.
+     */
+    void setCustomPrefix(long guildId, String prefix);
+
+    /**
+     * A guild was changed somewhere else. It might not even be on this node, so only keep it if the guild is already known.
+     *
+     * @param guildId the guild to update.
+     * @param prefix  the new custom prefix, or null if the guild doesn't have one anymore.
+     */
+    void updateCustomPrefix(long guildId, String prefix);
+
+    /**
+     * Forgets every prefix, as something might have changed without anyone knowing. They have to be looked up again.
+     */
+    void clear();
+}
@@ -0,0 +1,102 @@
+package net.kodehawa.mantarobot.db;
+
+import br.com.brjdevs.java.utils.async.Async;
+import com.rethinkdb.gen.ast.ReqlFunction3;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.db.entities.UserData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.rethinkdb.RethinkDB.r;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
+
+/**
+ * Collects the experience given for chatting and writes it in batches, instead of reading and replacing the whole {@link UserData} for every
+ * message that gives experience.
+ * <p>
+ * Experience is added to the stored value on the database side, so it can't overwrite anything else written in the meantime. Users that
+ * don't have a document yet get a default one. Level ups are checked once per flush, for the users that got experience on it.
+ * <p>
+ * Pending deltas are flushed every {@link #FLUSH_INTERVAL} seconds and when the JVM shuts down. The amount of users pending and the time each
+ * flush takes are sent to StatsD as {@code xp_pending} and {@code xp_flush_time}.
+ */
+@Slf4j
+public class XpAccumulator {
+    private static final int FLUSH_INTERVAL = 10;
+    //Keep the existing document, only adding the new experience to it.
+    private static final ReqlFunction3 MERGE_XP = (id, oldDoc, newDoc) -> oldDoc.merge(
+        r.hashMap("xp", oldDoc.g("xp").default_(0).add(newDoc.g("xp")))
+            .with("level", r.branch(oldDoc.g("level").default_(0).eq(0), 1, oldDoc.g("level")))
+    );
+    private TLongLongMap pending = new TLongLongHashMap();
+
+    public XpAccumulator() {
+        Async.task("XP Flush Thread", this::flush, FLUSH_INTERVAL, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "XP Shutdown Flush"));
+    }
+
+    public synchronized void add(long userId, long xp) {
+        pending.adjustOrPutValue(userId, xp, xp);
+    }
+
+    public void flush() {
+        TLongLongMap batch;
+        synchronized (this) {
+            MantaroBot.getInstance().getStatsClient().gauge("xp_pending", pending.size());
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new TLongLongHashMap();
+        }
+
+        long start = System.currentTimeMillis();
+        List<UserData> deltas = new ArrayList<>(batch.size());
+        List<Object> ids = new ArrayList<>(batch.size());
+        batch.forEachEntry((id, xp) -> {
+            UserData delta = new UserData(String.valueOf(id));
+            delta.setLevel(1);
+            delta.setXp(xp);
+            deltas.add(delta);
+            ids.add(delta.getId());
+            return true;
+        });
+
+        try {
+            pool().run(r.table(UserData.DB_TABLE).insert(deltas).optArg("conflict", MERGE_XP));
+            MantaroBot.getInstance().getStatsClient().increment("database_hits");
+        } catch (Exception e) {
+            log.warn("Couldn't flush experience for {} users, retrying on the next flush", batch.size(), e);
+            synchronized (this) {
+                batch.forEachEntry((id, xp) -> {
+                    pending.adjustOrPutValue(id, xp, xp);
+                    return true;
+                });
+            }
+            return;
+        }
+
+        try {
+            List<Object> levelUps = new ArrayList<>();
+            List<Map<String, Object>> levels = pool().run(r.table(UserData.DB_TABLE).getAll(ids.toArray())
+                .pluck("id", "level", "xp").coerceTo("array"));
+            for (Map<String, Object> user : levels) {
+                long level = ((Number) user.get("level")).longValue(), xp = ((Number) user.get("xp")).longValue();
+                if (xp > (level * Math.log10(level) * 1000)) levelUps.add(user.get("id"));
+            }
+
+            if (!levelUps.isEmpty()) {
+                pool().run(r.table(UserData.DB_TABLE).getAll(levelUps.toArray())
+                    .update(user -> r.hashMap("level", user.g("level").add(1))));
+            }
+        } catch (Exception e) {
+            log.warn("Couldn't check level ups for {} users", batch.size(), e);
+        }
+
+        MantaroBot.getInstance().getStatsClient().histogram("xp_flush_time", System.currentTimeMillis() - start);
+    }
+}
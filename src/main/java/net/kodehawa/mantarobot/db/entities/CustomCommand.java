@@ -14,7 +14,7 @@ import java.util.List;
 import java.util.Set;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 /**
  * <p>A Custom Command Object.</p>
@@ -41,15 +41,14 @@ public class CustomCommand implements ManagedObject {
 
 	@Override
 	public void delete() {
-		r.table(DB_TABLE).get(getId()).delete().runNoReply(conn());
+		pool().runNoReply(r.table(DB_TABLE).get(getId()).delete());
 
 	}
 
 	@Override
 	public void save() {
-		r.table(DB_TABLE).insert(this)
-			.optArg("conflict", "replace")
-			.runNoReply(conn());
+		pool().runNoReply(r.table(DB_TABLE).insert(this)
+			.optArg("conflict", "replace"));
 
 	}
 
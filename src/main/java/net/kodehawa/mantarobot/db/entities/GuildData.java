@@ -1,18 +1,23 @@
 package net.kodehawa.mantarobot.db.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import net.dv8tion.jda.core.entities.Guild;
 import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.core.DispatchPolicy;
 import net.kodehawa.mantarobot.db.ManagedObject;
 import net.kodehawa.mantarobot.db.entities.helpers.ExtraGuildData;
 
 import static com.rethinkdb.RethinkDB.r;
 import static java.lang.System.currentTimeMillis;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
+import static net.kodehawa.mantarobot.data.MantaroData.db;
 
 @Getter
 @Setter
@@ -20,9 +25,12 @@ import static net.kodehawa.mantarobot.data.MantaroData.conn;
 @RequiredArgsConstructor
 public class GuildData implements ManagedObject {
     public static final String DB_TABLE = "guilds";
+    private static final ObjectMapper COPIER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     private final ExtraGuildData data;
     private final String id;
     private long premiumUntil;
+    @Setter(AccessLevel.NONE)
+    private transient volatile DispatchPolicy dispatchPolicy;
 
     public GuildData(Guild guild) {
         this(guild.getId());
@@ -35,18 +43,40 @@ public class GuildData implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().run(conn());
+        pool().run(r.table(DB_TABLE).get(getId()).delete());
+        db().invalidateGuild(getId());
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .run(conn());
+        dispatchPolicy = null;
+        pool().run(r.table(DB_TABLE).insert(this)
+            .optArg("conflict", "replace"));
+        db().cacheGuild(this);
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 
+    /**
+     * @return the command filters of this guild, compiled on first use after the last save.
+     */
+    @JsonIgnore
+    public DispatchPolicy getDispatchPolicy() {
+        DispatchPolicy policy = dispatchPolicy;
+        if (policy == null) dispatchPolicy = policy = DispatchPolicy.of(data);
+        return policy;
+    }
+
+    /**
+     * @return a deep copy of this guild, which can be changed without touching this one. The compiled command filters are shared, they never
+     * change once compiled.
+     */
+    public GuildData copy() {
+        GuildData copy = COPIER.convertValue(this, GuildData.class);
+        copy.dispatchPolicy = getDispatchPolicy();
+        return copy;
+    }
+
     @JsonIgnore
     public long getPremiumLeft() {
         return isPremium() ? this.premiumUntil - currentTimeMillis() : 0;
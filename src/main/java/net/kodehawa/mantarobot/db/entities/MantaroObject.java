@@ -13,7 +13,8 @@ import java.util.List;
 import java.util.Map;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
+import static net.kodehawa.mantarobot.data.MantaroData.db;
 
 @Getter
 @ToString
@@ -33,17 +34,28 @@ public class MantaroObject implements ManagedObject {
         this.mutes = new HashMap<>();
     }
 
+    /**
+     * @return a copy of this, with its own lists and maps, which can be changed without touching this one.
+     */
+    public MantaroObject copy() {
+        MantaroObject copy = new MantaroObject(new LinkedList<>(blackListedGuilds), new LinkedList<>(blackListedUsers), new HashMap<>(tempBans));
+        copy.mutes = mutes == null ? new HashMap<>() : new HashMap<>(mutes);
+        return copy;
+    }
+
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().run(conn());
+        pool().run(r.table(DB_TABLE).get(getId()).delete());
+        db().invalidateMantaroData();
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .run(conn());
+        pool().run(r.table(DB_TABLE).insert(this)
+            .optArg("conflict", "replace"));
+        //Whoever saved it can keep changing their instance.
+        db().refreshMantaroData(copy());
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 }
\ No newline at end of file
@@ -7,7 +7,7 @@ import net.kodehawa.mantarobot.db.ManagedObject;
 import java.beans.ConstructorProperties;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Getter
 public class PremiumKey implements ManagedObject {
@@ -25,15 +25,14 @@ public class PremiumKey implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().run(conn());
+        pool().run(r.table(DB_TABLE).get(getId()).delete());
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .run(conn());
+        pool().run(r.table(DB_TABLE).insert(this)
+            .optArg("conflict", "replace"));
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 }
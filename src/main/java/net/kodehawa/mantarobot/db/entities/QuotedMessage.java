@@ -8,7 +8,7 @@ import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.db.ManagedObject;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Getter
 @ToString
@@ -43,15 +43,14 @@ public class QuotedMessage implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().run(conn());
+        pool().run(r.table(DB_TABLE).get(getId()).delete());
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .run(conn());
+        pool().run(r.table(DB_TABLE).insert(this)
+            .optArg("conflict", "replace"));
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 }
@@ -1,6 +1,10 @@
 package net.kodehawa.mantarobot.db.entities;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rethinkdb.gen.ast.ReqlFunction3;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -11,6 +15,7 @@ import net.kodehawa.mantarobot.commands.currency.item.ItemStack;
 import net.kodehawa.mantarobot.commands.currency.item.Items;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.ManagedObject;
+import net.kodehawa.mantarobot.db.PartialUpdate;
 import net.kodehawa.mantarobot.db.entities.helpers.ExtraUserData;
 import net.kodehawa.mantarobot.db.entities.helpers.Inventory;
 import org.apache.http.util.Args;
@@ -21,12 +26,14 @@ import java.util.Map;
 
 import static com.rethinkdb.RethinkDB.r;
 import static java.lang.System.currentTimeMillis;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Getter
 @Setter
 @ToString
 @RequiredArgsConstructor
+//Loaded straight into the fields, so the setters (which track changes) aren't called when reading from the database.
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, setterVisibility = Visibility.NONE)
 public class UserData implements ManagedObject {
     public static final String DB_TABLE = "users";
     private final ExtraUserData data;
@@ -37,6 +44,21 @@ public class UserData implements ManagedObject {
     private long level, money, reputation, xp;
     private long premiumUntil;
     private String timezone;
+    //What changed since this was loaded or saved. Only that gets written on save.
+    @Getter(AccessLevel.NONE)
+    private final transient PartialUpdate changes = new PartialUpdate();
+    //Handed to the helper data and the inventory, which only call it when something in them actually changes.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final transient Runnable dataChanged = () -> changes.set("data", this.data), inventoryChanged = () -> changes.set("inventory", this.inventory);
+    //The one view over the inventory map, so everyone sees the same amounts. Made on first use.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Inventory inventoryView;
+    //Whether this was loaded from the database, rather than created because there was nothing stored.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean persisted = true;
 
     public UserData(User user) {
         this(user.getId());
@@ -46,19 +68,34 @@ public class UserData implements ManagedObject {
         this.id = userId;
         this.inventory = new HashMap<>();
         this.data = new ExtraUserData();
+        this.persisted = false;
     }
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().run(conn());
+        pool().run(r.table(DB_TABLE).get(getId()).delete());
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .run(conn());
+        Map<String, Object> result;
+        if (!persisted) {
+            //Someone else (chat experience, another node) might have created it in the meantime, so keep what's there and apply our changes.
+            result = pool().run(r.table(DB_TABLE).insert(this)
+                .optArg("conflict", (ReqlFunction3) (id, oldDoc, newDoc) -> oldDoc.merge(changes.toReql(oldDoc))));
+        } else {
+            if (changes.isEmpty()) return;
+            result = pool().run(r.table(DB_TABLE).get(getId())
+                .update(user -> changes.toReql(user)));
+        }
+
+        //Nothing was written, most likely money that was spent somewhere else in the meantime.
+        if (((Number) result.get("errors")).longValue() != 0)
+            throw new IllegalStateException("Couldn't save user " + getId() + ": " + result.get("first_error"));
+
+        persisted = true;
+        changes.clear();
         MantaroBot.getInstance().getStatsClient().increment("database_hits");
     }
 
@@ -66,9 +103,10 @@ public class UserData implements ManagedObject {
         if (money == 0) return false;
         try {
             this.money = Math.addExact(this.money, Args.positive(money, "money"));
+            changes.increment("money", money, this.money);
             return true;
         } catch (ArithmeticException ignored) {
-            this.money = 0;
+            setMoney(0);
             this.inventory().process(new ItemStack(Items.STAR, 1));
             return false;
         }
@@ -77,6 +115,15 @@ public class UserData implements ManagedObject {
     public void addReputation(long reputation) {
         if (reputation == 0) return;
         this.reputation += Args.positive(reputation, "reputation");
+        changes.increment("reputation", reputation, this.reputation);
+    }
+
+    /**
+     * The helper data marks itself as changed through its setters, so getting it doesn't make it get saved.
+     */
+    public ExtraUserData getData() {
+        data.setOnChange(dataChanged);
+        return data;
     }
 
     @JsonIgnore
@@ -92,14 +139,16 @@ public class UserData implements ManagedObject {
     public void incrementPremium(long milliseconds) {
         if (isPremium()) {
             this.premiumUntil += milliseconds;
+            changes.increment("premiumUntil", milliseconds, this.premiumUntil);
         } else {
-            this.premiumUntil = currentTimeMillis() + milliseconds;
+            setPremiumUntil(currentTimeMillis() + milliseconds);
         }
     }
 
     @JsonIgnore
-    public Inventory inventory() {
-        return new Inventory(inventory);
+    public synchronized Inventory inventory() {
+        if (inventoryView == null) inventoryView = new Inventory(inventory, inventoryChanged);
+        return inventoryView;
     }
 
     //it's 3am and i cba to replace usages of this so whatever
@@ -111,7 +160,7 @@ public class UserData implements ManagedObject {
 
     @JsonIgnore
     public void setLocked(boolean locked) {
-        data.setLockedUntil(locked ? System.currentTimeMillis() + 30000 : 0);
+        getData().setLockedUntil(locked ? System.currentTimeMillis() + 30000 : 0);
     }
 
     @JsonIgnore
@@ -119,13 +168,74 @@ public class UserData implements ManagedObject {
         return currentTimeMillis() < premiumUntil;
     }
 
+    /**
+     * Takes the money straight away on the database, and only if it's still there, so two commands spending at the same time can't both go
+     * through on a balance that only covers one of them.
+     *
+     * @return false if there isn't enough money, in which case nothing was taken.
+     */
     public boolean removeMoney(long money) {
         if (this.money - money < 0) return false;
+
+        //Not in the database yet, so nothing else can be spending it. Saving fails if it went below zero in the meantime anyway.
+        if (!persisted || money == 0) {
+            this.money -= money;
+            changes.increment("money", -money, this.money);
+            return true;
+        }
+
+        Map<String, Object> result = pool().run(r.table(DB_TABLE).get(getId())
+            .update(user -> r.branch(
+                user.g("money").default_(0).ge(money),
+                r.hashMap("money", user.g("money").default_(0).sub(money)),
+                r.error("Not enough money")
+            )));
+        MantaroBot.getInstance().getStatsClient().increment("database_hits");
+        if (((Number) result.get("replaced")).longValue() == 0) return false;
+
         this.money -= money;
+        //Already taken, so it's only written again if the money gets overwritten on save anyway.
+        if (changes.isSet("money")) changes.increment("money", -money, this.money);
         return true;
     }
 
+    public void setBirthday(String birthday) {
+        this.birthday = birthday;
+        changes.set("birthday", birthday);
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+        changes.set("description", description);
+    }
+
+    public void setLevel(long level) {
+        this.level = level;
+        changes.set("level", level);
+    }
+
     public void setMoney(long money) {
         this.money = Math.max(0, money);
+        changes.set("money", this.money);
+    }
+
+    public void setPremiumUntil(long premiumUntil) {
+        this.premiumUntil = premiumUntil;
+        changes.set("premiumUntil", premiumUntil);
+    }
+
+    public void setReputation(long reputation) {
+        this.reputation = reputation;
+        changes.set("reputation", reputation);
+    }
+
+    public void setTimezone(String timezone) {
+        this.timezone = timezone;
+        changes.set("timezone", timezone);
+    }
+
+    public void setXp(long xp) {
+        this.xp = xp;
+        changes.set("xp", xp);
     }
 }
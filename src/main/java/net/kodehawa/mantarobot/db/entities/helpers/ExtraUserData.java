@@ -1,6 +1,12 @@
 package net.kodehawa.mantarobot.db.entities.helpers;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Objects;
 
 @Data
 public class ExtraUserData {
@@ -8,4 +14,41 @@ public class ExtraUserData {
     private String timezone;
     private int reminderN;
     private long lockedUntil = 0;
+    //Set by the UserData this belongs to, so it knows this has to be saved. Not set while loading.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Runnable onChange;
+
+    @JsonIgnore
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    public void setBirthday(String birthday) {
+        if (Objects.equals(this.birthday, birthday)) return;
+        this.birthday = birthday;
+        changed();
+    }
+
+    public void setTimezone(String timezone) {
+        if (Objects.equals(this.timezone, timezone)) return;
+        this.timezone = timezone;
+        changed();
+    }
+
+    public void setReminderN(int reminderN) {
+        if (this.reminderN == reminderN) return;
+        this.reminderN = reminderN;
+        changed();
+    }
+
+    public void setLockedUntil(long lockedUntil) {
+        if (this.lockedUntil == lockedUntil) return;
+        this.lockedUntil = lockedUntil;
+        changed();
+    }
+
+    private void changed() {
+        if (onChange != null) onChange.run();
+    }
 }
@@ -8,70 +8,102 @@ import net.kodehawa.mantarobot.commands.currency.item.Items;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static net.kodehawa.mantarobot.db.entities.helpers.Inventory.Resolver.serialize;
-import static net.kodehawa.mantarobot.db.entities.helpers.Inventory.Resolver.unserialize;
-
+/**
+ * A view over the raw item id to amount map stored in {@link net.kodehawa.mantarobot.db.entities.UserData}.
+ * <p>
+ * The amounts are read once into an array indexed by item id, so lookups don't touch the map at all, and every change is written through to
+ * the map right away, so what gets saved is always up to date. Whoever owns the map gets told when an amount actually changes.
+ */
 @Slf4j
 public class Inventory {
+    public static final int MAX_STACK = 5000;
+    private final int[] amounts = new int[Items.ALL.length];
     private final Map<Integer, Integer> inventory;
+    private final Runnable onChange;
 
     public Inventory() {
         this(new HashMap<>());
     }
 
     public Inventory(Map<Integer, Integer> raw) {
+        this(raw, () -> {});
+    }
+
+    /**
+     * @param onChange called every time the map gets changed.
+     */
+    public Inventory(Map<Integer, Integer> raw, Runnable onChange) {
         inventory = raw;
+        this.onChange = onChange;
+        raw.forEach((id, amount) -> {
+            if(id >= 0 && id < amounts.length) amounts[id] = Math.max(Math.min(amount, MAX_STACK), 0);
+        });
     }
 
     public List<ItemStack> asList() {
-        return unserialize(inventory);
+        List<ItemStack> list = new ArrayList<>();
+        for(int id = 0; id < amounts.length; id++) {
+            if(amounts[id] != 0) list.add(new ItemStack(Items.ALL[id], amounts[id]));
+        }
+        return list;
     }
 
     public Map<Item, ItemStack> asMap() {
-        return ItemStack.mapped(asList());
+        Map<Item, ItemStack> map = new HashMap<>();
+        for(int id = 0; id < amounts.length; id++) {
+            if(amounts[id] != 0) map.put(Items.ALL[id], new ItemStack(Items.ALL[id], amounts[id]));
+        }
+        return map;
     }
 
     public void clear() {
+        Arrays.fill(amounts, 0);
+        if(inventory.isEmpty()) return;
         inventory.clear();
+        onChange.run();
     }
 
     public void clearOnlySellables() {
-        List<ItemStack> ns = asList().stream().filter(item -> !item.getItem().isSellable()).collect(Collectors.toList());
-        replaceWith(ns);
+        for(int id = 0; id < amounts.length; id++) {
+            if(Items.ALL[id].isSellable()) set(id, 0);
+        }
     }
 
     public boolean containsItem(Item item) {
-        return asMap().containsKey(item);
+        return getAmount(item) != 0;
     }
 
     public int getAmount(Item item) {
-        return asMap().getOrDefault(item, new ItemStack(item, 0)).getAmount();
+        int id = Items.idOf(item);
+        return id < 0 ? 0 : amounts[id];
     }
 
     public ItemStack getStackOf(Item item) {
-        if(containsItem(item)) {
-            return asMap().get(item);
-        } else {
-            return null;
-        }
+        int amount = getAmount(item);
+        return amount == 0 ? null : new ItemStack(item, amount);
     }
 
+    /**
+     * Adds (or, with negative amounts, takes) the stacks to the inventory. Amounts stay between 0 and {@link #MAX_STACK}.
+     *
+     * @return true if any stack had to be capped.
+     */
     public boolean merge(List<ItemStack> inv) {
-        Map<Integer, Integer> map = new HashMap<>(inventory);
-        Map<Integer, Integer> toAdd = serialize(inv);
-        boolean[] hadOverflow = {false};
-        toAdd.forEach((id, amount) -> {
-            int currentAmount = map.getOrDefault(id, 0);
-            if(currentAmount + amount > 5000) {
-                currentAmount = 5000;
-                hadOverflow[0] = true;
-            } else {
-                currentAmount += amount;
+        boolean hadOverflow = false;
+        for(int i = 0, size = inv.size(); i < size; i++) {
+            ItemStack stack = inv.get(i);
+            if(stack.getAmount() == 0) continue;
+
+            int id = Items.idOf(stack.getItem());
+            if(id < 0) continue;
+            int amount = amounts[id] + stack.getAmount();
+            if(amount > MAX_STACK) {
+                amount = MAX_STACK;
+                hadOverflow = true;
             }
-            map.put(id, currentAmount);
-        });
-        replaceWith(unserialize(map));
-        return hadOverflow[0];
+            set(id, Math.max(amount, 0));
+        }
+        return hadOverflow;
     }
 
     public void process(List<ItemStack> is) {
@@ -85,8 +117,16 @@ public class Inventory {
     }
 
     public void replaceWith(List<ItemStack> inv) {
-        inventory.clear();
-        inventory.putAll(serialize(inv));
+        clear();
+        merge(inv);
+    }
+
+    private void set(int id, int amount) {
+        if(id < 0 || id >= amounts.length || amounts[id] == amount) return;
+        amounts[id] = amount;
+        if(amount == 0) inventory.remove(id);
+        else inventory.put(id, amount);
+        onChange.run();
     }
 
     public static class Resolver {
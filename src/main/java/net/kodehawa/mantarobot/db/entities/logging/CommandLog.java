@@ -8,7 +8,7 @@ import net.kodehawa.mantarobot.db.ManagedObject;
 import java.time.OffsetDateTime;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Data
 public class CommandLog implements ManagedObject {
@@ -37,13 +37,12 @@ public class CommandLog implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().run(conn());
+        pool().run(r.table(DB_TABLE).get(getId()).delete());
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .run(conn());
+        pool().run(r.table(DB_TABLE).insert(this)
+            .optArg("conflict", "replace"));
     }
 }
@@ -1,10 +1,11 @@
 package net.kodehawa.mantarobot.db.entities.logging;
 
+import com.rethinkdb.gen.ast.ReqlFunction3;
 import lombok.Data;
 import net.kodehawa.mantarobot.db.ManagedObject;
 
 import static com.rethinkdb.RethinkDB.r;
-import static net.kodehawa.mantarobot.data.MantaroData.conn;
+import static net.kodehawa.mantarobot.data.MantaroData.pool;
 
 @Data
 public class PlayedSong implements ManagedObject {
@@ -14,12 +15,8 @@ public class PlayedSong implements ManagedObject {
         PlayedSong song = new PlayedSong(songId);
         song.setTimesPlayed(1);
 
-        r.table(DB_TABLE).insert(song)
-            .optArg("conflict", (id, arg1, arg2) -> {
-                arg1.g("timesPlayed").add(1);
-                return arg1;
-            })
-            .run(conn());
+        pool().run(r.table(DB_TABLE).insert(song)
+            .optArg("conflict", (ReqlFunction3) (id, oldDoc, newDoc) -> oldDoc.merge(r.hashMap("timesPlayed", oldDoc.g("timesPlayed").add(1)))));
     }
 
     private final String id;
@@ -27,13 +24,12 @@ public class PlayedSong implements ManagedObject {
 
     @Override
     public void delete() {
-        r.table(DB_TABLE).get(getId()).delete().run(conn());
+        pool().run(r.table(DB_TABLE).get(getId()).delete());
     }
 
     @Override
     public void save() {
-        r.table(DB_TABLE).insert(this)
-            .optArg("conflict", "replace")
-            .run(conn());
+        pool().run(r.table(DB_TABLE).insert(this)
+            .optArg("conflict", "replace"));
     }
 }
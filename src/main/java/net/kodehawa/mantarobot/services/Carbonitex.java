@@ -2,6 +2,7 @@ package net.kodehawa.mantarobot.services;
 
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.JDA;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.*;
 
 import static net.kodehawa.mantarobot.data.MantaroData.config;
@@ -9,7 +10,6 @@ import static net.kodehawa.mantarobot.data.MantaroData.config;
 @Slf4j
 public class Carbonitex implements Runnable {
     private final String carbonToken = config().get().carbonToken;
-    private final OkHttpClient httpClient = new OkHttpClient();
     private int shardId, totalShards;
     private JDA jda;
 
@@ -36,7 +36,7 @@ public class Carbonitex implements Runnable {
                         .post(body)
                         .build();
 
-                Response response = httpClient.newCall(request).execute();
+                Response response = HTTPRequester.PARENT.newCall(request).execute();
                 response.close();
             } catch(Exception ignored) {
             }
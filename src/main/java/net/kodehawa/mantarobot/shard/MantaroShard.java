@@ -12,6 +12,7 @@ import net.dv8tion.jda.core.entities.Game;
 import net.dv8tion.jda.core.exceptions.RateLimitedException;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.listener.VoiceChannelListener;
+import net.kodehawa.mantarobot.core.CommandScheduler;
 import net.kodehawa.mantarobot.core.MantaroEventManager;
 import net.kodehawa.mantarobot.core.listeners.MantaroListener;
 import net.kodehawa.mantarobot.core.listeners.command.CommandListener;
@@ -21,10 +22,8 @@ import net.kodehawa.mantarobot.data.Config;
 import net.kodehawa.mantarobot.services.Carbonitex;
 import net.kodehawa.mantarobot.utils.data.DataManager;
 import net.kodehawa.mantarobot.utils.data.SimpleFileDataManager;
-import okhttp3.MediaType;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,7 +46,7 @@ public class MantaroShard implements JDA {
     public static final DataManager<List<String>> SPLASHES = new SimpleFileDataManager("assets/mantaro/texts/splashes.txt");
     public static final VoiceChannelListener VOICE_CHANNEL_LISTENER = new VoiceChannelListener();
     private static final Random RANDOM = new Random();
-    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final HTTPRequester BOTLISTS = new HTTPRequester("Botlists");
 
     static {
         if(SPLASHES.get().removeIf(s -> s == null || s.isEmpty())) SPLASHES.save();
@@ -58,7 +57,7 @@ public class MantaroShard implements JDA {
     @Getter
     private final ExecutorService threadPool;
     @Getter
-    private final ExecutorService commandPool;
+    private final CommandScheduler commandScheduler;
     private final CommandListener commandListener;
     private final Logger log;
     private final MantaroListener mantaroListener;
@@ -83,7 +82,7 @@ public class MantaroShard implements JDA {
                         .build();
 
         threadPool = Executors.newCachedThreadPool(normalTPNamedFactory);
-        commandPool = Executors.newCachedThreadPool(commandTPNamedFactory);
+        commandScheduler = new CommandScheduler(config().get().commandWorkers, config().get().commandsPerGuild, commandTPNamedFactory);
 
         log = LoggerFactory.getLogger("MantaroShard-" + shardId);
         mantaroListener = new MantaroListener(shardId, this);
@@ -119,10 +118,12 @@ public class MantaroShard implements JDA {
         jda = jdaBuilder.buildAsync();
         Thread.sleep(5000);
         readdListeners();
+        //If it got ready before the listeners were back, the ready event that would do this was missed.
+        if(jda.getStatus() == JDA.Status.CONNECTED && MantaroBot.getInstance() != null)
+            MantaroBot.getInstance().getAudioManager().getQueueStore().restore(jda);
     }
 
     public void updateServerCount() {
-        OkHttpClient httpClient = new OkHttpClient();
         Config config = config().get();
 
         String dbotsToken = config.dbotsToken;
@@ -133,30 +134,21 @@ public class MantaroShard implements JDA {
                 int count = jda.getGuilds().size();
 
                 try {
-                    RequestBody body = RequestBody.create(
-                            JSON,
-                            new JSONObject().put("server_count", count).put("shard_id", getId()).put("shard_count", totalShards).toString()
-                    );
-
+                    JSONObject stats = new JSONObject().put("server_count", count).put("shard_id", getId()).put("shard_count", totalShards);
 
+                    //Nobody waits on these, failures just get counted in the http metrics.
                     if(dbotsToken != null) {
-                        Request request = new Request.Builder()
-                                .url("https://bots.discord.pw/api/bots/" + jda.getSelfUser().getId() + "/stats")
-                                .addHeader("Authorization", dbotsToken)
-                                .addHeader("Content-Type", "application/json")
-                                .post(body)
-                                .build();
-                        httpClient.newCall(request).execute().close();
+                        BOTLISTS.newRequest("https://bots.discord.pw/api/bots/" + jda.getSelfUser().getId() + "/stats")
+                                .header("Authorization", dbotsToken)
+                                .body(stats)
+                                .postAsync();
                     }
 
                     if(dbotsorgToken != null) {
-                        Request request = new Request.Builder()
-                                .url("https://discordbots.org/api/bots/" + jda.getSelfUser().getId() + "/stats")
-                                .addHeader("Authorization", dbotsorgToken)
-                                .addHeader("Content-Type", "application/json")
-                                .post(body)
-                                .build();
-                        httpClient.newCall(request).execute().close();
+                        BOTLISTS.newRequest("https://discordbots.org/api/bots/" + jda.getSelfUser().getId() + "/stats")
+                                .header("Authorization", dbotsorgToken)
+                                .body(stats)
+                                .postAsync();
                     }
                 } catch(Exception ignored) {
                 }
@@ -5,7 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.core.MantaroEventManager;
 import net.kodehawa.mantarobot.utils.SentryHelper;
-import okhttp3.OkHttpClient;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.json.JSONObject;
@@ -34,14 +34,13 @@ public class ShardedMantaro {
 
     private static int getRecommendedShards(String token) {
         try {
-            OkHttpClient okHttp = new OkHttpClient();
             Request shards = new Request.Builder()
                     .url("https://discordapp.com/api/gateway/bot")
                     .header("Authorization", "Bot " + token)
                     .header("Content-Type", "application/json")
                     .build();
 
-            Response response = okHttp.newCall(shards).execute();
+            Response response = HTTPRequester.PARENT.newCall(shards).execute();
             JSONObject shardObject = new JSONObject(response.body().string());
             response.close();
             return shardObject.getInt("shards");
@@ -0,0 +1,87 @@
+package net.kodehawa.mantarobot.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts events by key over the last minute, hour and day, without locks, timers or allocating anything per event.
+ * <p>
+ * Every key has three rings of buckets: 60 of a second, 60 of a minute and 24 of an hour. Logging an event bumps the current bucket of each
+ * ring, and the totals of a window are the sum of the buckets that are still inside of it, so old events just stop being counted once their
+ * bucket falls out of the window (or gets reused).
+ *
+ * @param <K> the type of the keys.
+ */
+public class SlidingWindowCounter<K> {
+    private static final int SECONDS = 60, MINUTES = 60, HOURS = 24;
+    private static final int MINUTES_OFFSET = SECONDS, HOURS_OFFSET = MINUTES_OFFSET + MINUTES, TOTAL_INDEX = HOURS_OFFSET + HOURS;
+    private final Map<K, AtomicLongArray> counters = new ConcurrentHashMap<>();
+    private final long start = System.currentTimeMillis();
+
+    //Each bucket packs the period it's counting in the high 32 bits and the count in the low 32, so it can be reset and bumped with one CAS.
+    private static void increment(AtomicLongArray buckets, int index, long period) {
+        while (true) {
+            long bucket = buckets.get(index);
+            long updated = (bucket >>> 32) == period ? bucket + 1 : (period << 32) | 1;
+            if (buckets.compareAndSet(index, bucket, updated)) return;
+        }
+    }
+
+    private static int sum(AtomicLongArray buckets, int offset, int length, long period) {
+        int sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            long bucket = buckets.get(i);
+            long bucketPeriod = bucket >>> 32;
+            if (bucketPeriod <= period && period - bucketPeriod < length) sum += (int) bucket;
+        }
+        return sum;
+    }
+
+    public void increment(K key) {
+        AtomicLongArray buckets = counters.get(key);
+        if (buckets == null) buckets = counters.computeIfAbsent(key, k -> new AtomicLongArray(TOTAL_INDEX + 1));
+
+        long second = (System.currentTimeMillis() - start) / 1000, minute = second / 60, hour = minute / 60;
+        increment(buckets, (int) (second % SECONDS), second);
+        increment(buckets, MINUTES_OFFSET + (int) (minute % MINUTES), minute);
+        increment(buckets, HOURS_OFFSET + (int) (hour % HOURS), hour);
+        buckets.incrementAndGet(TOTAL_INDEX);
+    }
+
+    /**
+     * @return how many times the key was counted during the window, or 0 if it never was.
+     */
+    public int get(K key, Window window) {
+        AtomicLongArray buckets = counters.get(key);
+        return buckets == null ? 0 : get(buckets, window, (System.currentTimeMillis() - start) / 1000);
+    }
+
+    /**
+     * @return the counts of every key that was ever counted (even if it wasn't during the window) at this moment, by key.
+     */
+    public Map<K, Integer> snapshot(Window window) {
+        long second = (System.currentTimeMillis() - start) / 1000;
+        Map<K, Integer> snapshot = new LinkedHashMap<>();
+        counters.forEach((key, buckets) -> snapshot.put(key, get(buckets, window, second)));
+        return snapshot;
+    }
+
+    private int get(AtomicLongArray buckets, Window window, long second) {
+        switch (window) {
+            case MINUTE:
+                return sum(buckets, 0, SECONDS, second);
+            case HOUR:
+                return sum(buckets, MINUTES_OFFSET, MINUTES, second / 60);
+            case DAY:
+                return sum(buckets, HOURS_OFFSET, HOURS, second / 3600);
+            default:
+                return (int) buckets.get(TOTAL_INDEX);
+        }
+    }
+
+    public enum Window {
+        MINUTE, HOUR, DAY, TOTAL
+    }
+}
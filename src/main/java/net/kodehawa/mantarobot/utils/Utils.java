@@ -7,6 +7,7 @@ import com.google.common.io.CharStreams;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.*;
 import org.json.JSONObject;
 import us.monoid.web.Resty;
@@ -15,8 +16,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Field;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -28,7 +27,8 @@ import java.util.regex.Pattern;
 
 @Slf4j
 public class Utils {
-    public static final OkHttpClient httpClient = new OkHttpClient();
+    private static final HTTPRequester REQUESTER = new HTTPRequester("Mantaro");
+    private static final HTTPRequester CACHED_REQUESTER = new HTTPRequester("Mantaro").cacheResponses(5, TimeUnit.MINUTES, 1000);
     private static final Pattern pattern = Pattern.compile("\\d+?[a-zA-Z]");
     public static ObjectMapper XML_MAPPER = new XmlMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
@@ -93,7 +93,7 @@ public class Utils {
                     .post(post)
                     .build();
 
-            Response r = httpClient.newCall(toPost).execute();
+            Response r = HTTPRequester.PARENT.newCall(toPost).execute();
             JSONObject response = new JSONObject(r.body().string());
             r.close();
             return "https://hastebin.com/" + response.getString("key");
@@ -135,7 +135,7 @@ public class Utils {
     }
 
     /**
-     * Fetches an Object from any given URL. Uses vanilla Java methods.
+     * Fetches an Object from any given URL, through the shared HTTP client.
      * Can retrieve text, JSON Objects, XML and probably more.
      *
      * @param url   The URL to get the object from.
@@ -143,21 +143,32 @@ public class Utils {
      * @return The object as a parsed UTF-8 string.
      */
     public static String wget(String url, GuildMessageReceivedEvent event) {
-        String webObject = null;
+        return wget(REQUESTER, url, event);
+    }
+
+    /**
+     * Same than above, but if the same URL was fetched in the last few minutes it gets answered from memory.
+     * Only for lookups that give the same result every time (searches and such, not random images).
+     *
+     * @param url   The URL to get the object from.
+     * @param event guild event
+     * @return The object as a parsed UTF-8 string.
+     */
+    public static String wgetCached(String url, GuildMessageReceivedEvent event) {
+        return wget(CACHED_REQUESTER, url, event);
+    }
+
+    private static String wget(HTTPRequester requester, String url, GuildMessageReceivedEvent event) {
         try {
-            URL ur1 = new URL(url);
-            HttpURLConnection conn = (HttpURLConnection) ur1.openConnection();
-            conn.setRequestProperty("User-Agent", "Mantaro");
-            InputStream ism = conn.getInputStream();
-            webObject = CharStreams.toString(new InputStreamReader(ism, StandardCharsets.UTF_8));
+            net.kodehawa.mantarobot.utils.http.Response response = requester.newRequest(url).get();
+            if(response.code() == 404) return null;
+            if(response.code() >= 400) throw new IOException("Server returned HTTP response code: " + response.code() + " for URL: " + url);
+            return response.asString();
         } catch(Exception e) {
-            if(e instanceof java.io.FileNotFoundException) return null;
-
             log.warn(getFetchDataFailureResponse(url, null), e);
             Optional.ofNullable(event).ifPresent((w) -> w.getChannel().sendMessage("\u274C I got an error while retrieving data from " + url).queue());
+            return null;
         }
-
-        return webObject;
     }
 
     /**
@@ -1,75 +1,174 @@
 package net.kodehawa.mantarobot.utils.cache;
 
 import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
 import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.SentryHelper;
-import okhttp3.OkHttpClient;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Keeps downloaded files on disk, up to a total size, dropping the least recently used ones when it goes over.
+ * <p>
+ * Files are named by the hash of their URL and written to a temporary file first, then renamed into place, so a file with the final name is
+ * always complete. If the same URL is requested while it's being downloaded, the second request waits for the first download instead of
+ * starting another one. The index is rebuilt from the directory on startup (oldest files first), so the cache survives restarts.
+ */
 @Slf4j
 public class URLCache {
-	public static final File DEFAULT_CACHE_DIR = new File("urlcache_files");
+    public static final File DEFAULT_CACHE_DIR = new File("urlcache_files");
+    public static final URLCache DEFAULT = new URLCache(DEFAULT_CACHE_DIR, MantaroData.config().get().urlCacheSize);
+    private static final String TEMP_SUFFIX = ".tmp";
+    private final Map<String, CompletableFuture<File>> downloads = new ConcurrentHashMap<>();
+    //By file name, in access order. Guarded by itself.
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final File cacheDir;
+    private final long maxBytes;
+    private long totalBytes;
 
-	private static final Map<String, File> saved = new ConcurrentHashMap<>();
-	private static final OkHttpClient okHttp = new OkHttpClient();
-	private final FileCache cache;
-	private File cacheDir;
-
-    public URLCache(File cacheDir, int cacheSize) {
+    public URLCache(File cacheDir, long maxBytes) {
         this.cacheDir = cacheDir;
-        cache = new FileCache(cacheSize);
+        this.maxBytes = maxBytes;
         if(cacheDir.isFile())
             cacheDir.delete();
         cacheDir.mkdirs();
+        load();
     }
 
-    public URLCache(int cacheSize) {
-        this(DEFAULT_CACHE_DIR, cacheSize);
-    }
-
-    public void changeCacheDir(File newDir) {
-        if(newDir == null) throw new NullPointerException("newDir");
-        if(!newDir.isDirectory()) throw new IllegalArgumentException("Not a directory: " + newDir);
-        cacheDir = newDir;
+    private static String name(String url) {
+        return Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString();
     }
 
     public File getFile(String url) {
-        File cachedFile = saved.get(Preconditions.checkNotNull(url, "url"));
-        if(cachedFile != null) return cachedFile;
-        File file = null;
-        try {
-            file = new File(cacheDir, url.replace('/', '_').replace(':', '_'));
-            Request r = new Request.Builder()
-                    .url(url)
-                    .build();
-
-            Response response = okHttp.newCall(r).execute();
-            try(InputStream is = response.body().byteStream();
-                FileOutputStream fos = new FileOutputStream(file)) {
-                byte[] buffer = new byte[1024];
-                int read;
-                while((read = is.read(buffer)) != -1)
-                    fos.write(buffer, 0, read);
-                saved.put(url, file);
-                response.close();
-                return file;
+        String name = name(Preconditions.checkNotNull(url, "url"));
+        File file = lookup(name);
+        if(file != null) return file;
+
+        CompletableFuture<File> download = new CompletableFuture<>();
+        CompletableFuture<File> running = downloads.putIfAbsent(name, download);
+        if(running != null) {
+            try {
+                return running.join();
+            } catch(CompletionException e) {
+                throw (RuntimeException) e.getCause();
             }
+        }
+
+        try {
+            //It could have finished between the lookup and taking over the download.
+            file = lookup(name);
+            if(file == null) file = download(url, name);
+            download.complete(file);
+            return file;
         } catch(Exception e) {
-            e.printStackTrace();
-            if(file != null) file.delete();
+            log.warn("Error caching {}", url, e);
             SentryHelper.captureExceptionContext("Error caching", e, this.getClass(), "Cacher");
-            throw new InternalError();
+            RuntimeException exception = e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+            download.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            downloads.remove(name, download);
         }
     }
 
+    /**
+     * @return the whole file, read into memory, so there's nothing to leak if the caller never closes it, and evicting the file afterwards
+     * doesn't affect it. Meant for images and other small files, use {@link #getFile(String)} for anything big.
+     */
     public InputStream getInput(String url) {
-        return cache.input(getFile(url));
+        //If the file gets evicted between getting it and opening it, just get it again.
+        while(true) {
+            try {
+                return new ByteArrayInputStream(Files.readAllBytes(getFile(url).toPath()));
+            } catch(NoSuchFileException e) {
+                synchronized(index) {
+                    Long size = index.remove(e.getFile() == null ? null : new File(e.getFile()).getName());
+                    if(size != null) totalBytes -= size;
+                }
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private File lookup(String name) {
+        synchronized(index) {
+            return index.get(name) == null ? null : new File(cacheDir, name);
+        }
+    }
+
+    private File download(String url, String name) throws IOException {
+        Path temp = Files.createTempFile(cacheDir.toPath(), name, TEMP_SUFFIX);
+        try {
+            Response response = HTTPRequester.PARENT.newCall(new Request.Builder().url(url).build()).execute();
+            try(ResponseBody body = response.body()) {
+                if(!response.isSuccessful() || body == null) throw new IOException("Server returned HTTP response code " + response.code() + " for " + url);
+                Files.copy(body.byteStream(), temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            File file = new File(cacheDir, name);
+            Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            add(name, file.length());
+            return file;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void add(String name, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized(index) {
+            Long old = index.put(name, size);
+            totalBytes += size - (old == null ? 0 : old);
+
+            //Never evicts the file that was just added, even if it's bigger than the whole cache.
+            Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+            while(totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if(entry.getKey().equals(name)) continue;
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                iterator.remove();
+            }
+        }
+
+        //Anyone still reading one of these keeps reading it, the data only goes away once they close it.
+        for(String file : evicted) new File(cacheDir, file).delete();
+    }
+
+    private void load() {
+        File[] files = cacheDir.listFiles();
+        if(files == null) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for(File file : files) {
+            //Leftovers from downloads that were interrupted.
+            if(file.getName().endsWith(TEMP_SUFFIX)) file.delete();
+            else if(file.isFile()) add(file.getName(), file.length());
+        }
     }
 }
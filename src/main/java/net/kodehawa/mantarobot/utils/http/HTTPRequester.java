@@ -1,14 +1,25 @@
 package net.kodehawa.mantarobot.utils.http;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.currency.RateLimiter;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -16,15 +27,31 @@ import java.util.function.Function;
  * Licensed under GPLv3.
  * <3
  *
+ * <p>
+ * Every requester (and everything else that needs an {@link OkHttpClient}) goes through {@link #PARENT}, so they all share the same dispatcher
+ * and connection pool. Requests can be made synchronously or with {@link #getAsync(Request)}/{@link #postAsync(Request)}, which wait for the
+ * rate limit on a timer instead of on the calling thread. The latency of every request and its failures are sent to StatsD by host.
+ *
  * @author natanbc
  * @since 04/07/2017
  */
 public class HTTPRequester {
-    public static final OkHttpClient PARENT = new OkHttpClient();
+    private static final int MAX_REQUESTS = 64, MAX_REQUESTS_PER_HOST = 8, MAX_IDLE_CONNECTIONS = 16;
+    public static final OkHttpClient PARENT = new OkHttpClient.Builder()
+            .dispatcher(dispatcher())
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, 5, TimeUnit.MINUTES))
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .writeTimeout(30, TimeUnit.SECONDS)
+            .build();
     public static final HTTPRequester DEFAULT = new HTTPRequester("Default");
+    private static final ScheduledExecutorService RATE_LIMIT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("HTTPRequester RateLimit Thread").setDaemon(true).build()
+    );
 
     protected final OkHttpClient client;
     protected final String identifier;
+    private Cache<String, Response> cache;
     private RateLimiter rateLimiter;
 
     public HTTPRequester(String identifier) {
@@ -46,16 +73,37 @@ public class HTTPRequester {
         this.rateLimiter = rateLimiter;
     }
 
+    private static Dispatcher dispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return dispatcher;
+    }
+
     private static byte[] fromBody(ResponseBody body) throws IOException {
-        if(body == null) return new byte[0];
-        InputStream is = body.byteStream();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        int r;
-        while((r = is.read(buffer)) != -1) {
-            baos.write(buffer, 0, r);
+        //Reads straight into an array of the right size when the length is known.
+        return body == null ? new byte[0] : body.bytes();
+    }
+
+    private static Response toResponse(okhttp3.Response res) throws IOException {
+        try {
+            return new Response(fromBody(res.body()), res.code(), res.headers().toMultimap());
+        } finally {
+            res.close();
         }
-        return baos.toByteArray();
+    }
+
+    /**
+     * Keeps successful GET responses by URL for a while, and answers the same requests with them instead of going to the network.
+     *
+     * @return this requester.
+     */
+    public HTTPRequester cacheResponses(long ttl, TimeUnit unit, int maxSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl, unit)
+                .maximumSize(maxSize)
+                .build();
+        return this;
     }
 
     public Request newRequest(String url) {
@@ -73,10 +121,13 @@ public class HTTPRequester {
     }
 
     public Response get(Request request) throws RequestingException {
+        Response cached = cached(request);
+        if(cached != null) return cached;
+
         long l = processRateLimit(request.rateLimitKey);
         if(l != -1 && !onRateLimited(request, l)) throw new RateLimitedException(l);
         try {
-            return execute(requestBuilder(request));
+            return cache(request, execute(requestBuilder(request)));
         } catch(Exception e) {
             throw new RequestingException(request, identifier, e);
         }
@@ -86,17 +137,81 @@ public class HTTPRequester {
         long l = processRateLimit(request.rateLimitKey);
         if(l != -1 && !onRateLimited(request, l)) throw new RateLimitedException(l);
         try {
-            return execute(requestBuilder(request)
-                    .post(RequestBody.create(
-                            request.type,
-                            request.body
-                    ))
-            );
+            return execute(postBuilder(request));
         } catch(Exception e) {
             throw new RequestingException(request, identifier, e);
         }
     }
 
+    /**
+     * Same as {@link #get(Request)}, but without blocking. If the request is rate limited, it gets sent once the limit is lifted.
+     *
+     * @return a future that completes with the response, or with a {@link RequestingException} if the request failed.
+     */
+    public CompletableFuture<Response> getAsync(Request request) {
+        Response cached = cached(request);
+        if(cached != null) return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        enqueue(request, false, future);
+        return future.thenApply(response -> cache(request, response));
+    }
+
+    /**
+     * Same as {@link #post(Request)}, but without blocking. If the request is rate limited, it gets sent once the limit is lifted.
+     *
+     * @return a future that completes with the response, or with a {@link RequestingException} if the request failed.
+     */
+    public CompletableFuture<Response> postAsync(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        enqueue(request, true, future);
+        return future;
+    }
+
+    private void enqueue(Request request, boolean post, CompletableFuture<Response> future) {
+        long l = processRateLimit(request.rateLimitKey);
+        if(l != -1) {
+            RATE_LIMIT_SCHEDULER.schedule(() -> enqueue(request, post, future), l, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        okhttp3.Request req;
+        try {
+            req = (post ? postBuilder(request) : requestBuilder(request)).build();
+        } catch(Exception e) {
+            future.completeExceptionally(new RequestingException(request, identifier, e));
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        client.newCall(req).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                record(req.url(), start, -1);
+                future.completeExceptionally(new RequestingException(request, identifier, e));
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response res) {
+                record(req.url(), start, res.code());
+                try {
+                    future.complete(toResponse(res));
+                } catch(Exception e) {
+                    future.completeExceptionally(new RequestingException(request, identifier, e));
+                }
+            }
+        });
+    }
+
+    private Response cached(Request request) {
+        return cache == null ? null : cache.getIfPresent(request.url);
+    }
+
+    private Response cache(Request request, Response response) {
+        if(cache != null && response.code() >= 200 && response.code() < 300) cache.put(request.url, response);
+        return response;
+    }
+
     protected boolean onRateLimited(Request request, long tryAgainIn) {
         try {
             Thread.sleep(tryAgainIn);
@@ -119,11 +234,34 @@ public class HTTPRequester {
         return builder;
     }
 
+    protected okhttp3.Request.Builder postBuilder(Request request) {
+        return requestBuilder(request).post(RequestBody.create(request.type, request.body));
+    }
+
     protected Response execute(okhttp3.Request.Builder builder) throws IOException {
-        okhttp3.Response res = client.newCall(builder.build()).execute();
-        ResponseBody body = res.body();
-        Response r = new Response(fromBody(body), res.code(), res.headers().toMultimap());
-        res.close();
-        return r;
+        okhttp3.Request req = builder.build();
+        long start = System.currentTimeMillis();
+        okhttp3.Response res;
+        try {
+            res = client.newCall(req).execute();
+        } catch(IOException e) {
+            record(req.url(), start, -1);
+            throw e;
+        }
+
+        record(req.url(), start, res.code());
+        return toResponse(res);
+    }
+
+    //code is -1 if the request didn't get a response at all.
+    private void record(HttpUrl url, long start, int code) {
+        MantaroBot bot = MantaroBot.getInstance();
+        if(bot == null) return;
+
+        String host = "host:" + url.host();
+        bot.getStatsClient().histogram("http_latency", System.currentTimeMillis() - start, host, "requester:" + identifier);
+        if(code == -1 || code >= 500 || code == 429) {
+            bot.getStatsClient().increment("http_errors", host, "requester:" + identifier, "code:" + code);
+        }
     }
 }
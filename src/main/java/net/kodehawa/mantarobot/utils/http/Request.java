@@ -7,6 +7,7 @@ import org.json.JSONObject;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Original: https://github.com/natanbc/GabrielBot/tree/master/src/main/java/gabrielbot/utils/http/Request.java
@@ -81,6 +82,14 @@ public class Request {
         return requester.post(this);
     }
 
+    public CompletableFuture<Response> getAsync() {
+        return requester.getAsync(this);
+    }
+
+    public CompletableFuture<Response> postAsync() {
+        return requester.postAsync(this);
+    }
+
     public HTTPRequester getRequester() {
         return requester;
     }
@@ -158,6 +158,9 @@ public class RabbitMQDataManager implements DataManager<JSONObject> {
                                     true
                             ));
 
+                            //So the queues can be picked up where they were after the restart.
+                            MantaroBot.getInstance().getAudioManager().getQueueStore().flush();
+
                             try {
                                 MantaroBot.getConnectionWatcher().reboot(hardkill);
                             } catch(Exception e) {
@@ -4,6 +4,7 @@ import br.com.brjdevs.java.utils.async.Async;
 import lombok.extern.slf4j.Slf4j;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.SentryHelper;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.*;
 import org.json.JSONObject;
 
@@ -28,7 +29,6 @@ public class MantaroAPI {
     //The total number of nodes received. This should be received under request after initial setup.
     public int nodesTotal = 1;
     private long lastPing = 0;
-    private OkHttpClient httpClient = new OkHttpClient();
 
     public void startService() {
         Runnable checker = () -> {
@@ -39,7 +39,7 @@ public class MantaroAPI {
                         .url(String.format("http://%s/", MantaroData.config().get().apiUrl))
                         .build();
 
-                httpClient.newCall(r).execute().close();
+                HTTPRequester.PARENT.newCall(r).execute().close();
                 long end = System.currentTimeMillis();
                 lastPing = end - start;
                 STATUS = APIStatus.ONLINE;
@@ -55,7 +55,7 @@ public class MantaroAPI {
                         .header("Authorization", sessionToken)
                         .post(identifyBody)
                         .build();
-                httpClient.newCall(identify).execute().close();
+                HTTPRequester.PARENT.newCall(identify).execute().close();
             } catch(Exception e) {
                 STATUS = APIStatus.OFFLINE;
             }
@@ -73,7 +73,7 @@ public class MantaroAPI {
                     .post(RequestBody.create(MediaType.parse("text/plain"), MantaroData.config().get().apiLoginCreds))
                     .build();
 
-            Response response = httpClient.newCall(tokenGet).execute();
+            Response response = HTTPRequester.PARENT.newCall(tokenGet).execute();
             sessionToken = new JSONObject(response.body().string()).getString("token");
             log.info("Logged in into the API!");
             response.close();
@@ -84,7 +84,7 @@ public class MantaroAPI {
                     .url(String.format("http://%s/", MantaroData.config().get().apiUrl))
                     .build();
 
-            httpClient.newCall(r).execute().close();
+            HTTPRequester.PARENT.newCall(r).execute().close();
             long end = System.currentTimeMillis();
             //pong, pls no lag.
             lastPing = end - start;
@@ -94,7 +94,7 @@ public class MantaroAPI {
                     .header("Authorization", sessionToken)
                     .build();
 
-            Response response1 = httpClient.newCall(nodeidr).execute();
+            Response response1 = HTTPRequester.PARENT.newCall(nodeidr).execute();
             String reply = response1.body().string();
             System.out.println(reply);
             nodeId = new JSONObject(reply).getInt("id");
@@ -113,7 +113,7 @@ public class MantaroAPI {
                     .header("Authorization", sessionToken)
                     .post(identifyBody)
                     .build();
-            httpClient.newCall(identify).execute().close();
+            HTTPRequester.PARENT.newCall(identify).execute().close();
 
             STATUS = APIStatus.ONLINE;
             return true;
@@ -134,7 +134,7 @@ public class MantaroAPI {
                         .header("Authorization", sessionToken)
                         .build();
 
-                Response response = httpClient.newCall(nodeidr).execute();
+                Response response = HTTPRequester.PARENT.newCall(nodeidr).execute();
                 nodesTotal = new JSONObject(response.body().string()).getInt("id");
                 response.close();
             } catch(Exception e) {
@@ -12,8 +12,9 @@ import net.kodehawa.mantarobot.core.CommandProcessorAndRegistry;
 import net.kodehawa.mantarobot.core.listeners.MantaroListener;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.shard.MantaroShard;
+import net.kodehawa.mantarobot.utils.SlidingWindowCounter.Window;
+import net.kodehawa.mantarobot.utils.http.HTTPRequester;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import org.json.JSONObject;
@@ -23,7 +24,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.kodehawa.mantarobot.commands.info.AsyncInfoMonitor.*;
 import static net.kodehawa.mantarobot.commands.info.CommandStatsManager.*;
@@ -33,8 +33,6 @@ import static net.kodehawa.mantarobot.web.MantaroAPI.sessionToken;
 @Slf4j
 public class MantaroAPISender {
 
-    private static OkHttpClient httpClient = new OkHttpClient();
-
     public static void startService() {
         Runnable postStats = () -> {
             //Ignore API calls if the api did a boom.
@@ -93,15 +91,17 @@ public class MantaroAPISender {
                     .put("musicConnections", musicConnections)
                     .put("lastEventTimes", lastEventTimes);
 
-            Map<Integer, Map<String, AtomicInteger>> total = new HashMap<>();
-            Map<Integer, Map<String, AtomicInteger>> today = new HashMap<>();
-            Map<Integer, Map<String, AtomicInteger>> hourly = new HashMap<>();
-            Map<Integer, Map<String, AtomicInteger>> now = new HashMap<>();
-
-            total.put(getTotalValueFor(TOTAL_CMDS), TOTAL_CMDS);
-            today.put(getTotalValueFor(DAY_CMDS), DAY_CMDS);
-            hourly.put(getTotalValueFor(HOUR_CMDS), HOUR_CMDS);
-            now.put(getTotalValueFor(MINUTE_CMDS), MINUTE_CMDS);
+            Map<Integer, Map<String, Integer>> total = new HashMap<>();
+            Map<Integer, Map<String, Integer>> today = new HashMap<>();
+            Map<Integer, Map<String, Integer>> hourly = new HashMap<>();
+            Map<Integer, Map<String, Integer>> now = new HashMap<>();
+
+            Map<String, Integer> totalCommands = getCommands(Window.TOTAL), dayCommands = getCommands(Window.DAY),
+                hourCommands = getCommands(Window.HOUR), minuteCommands = getCommands(Window.MINUTE);
+            total.put(getTotalValueFor(totalCommands), totalCommands);
+            today.put(getTotalValueFor(dayCommands), dayCommands);
+            hourly.put(getTotalValueFor(hourCommands), hourCommands);
+            now.put(getTotalValueFor(minuteCommands), minuteCommands);
             JSONObject commands = new JSONObject()
                     .put("total", total)
                     .put("today", today)
@@ -109,10 +109,10 @@ public class MantaroAPISender {
                     .put("now", now);
 
             JSONObject guildsS = new JSONObject()
-                    .put("total", TOTAL_EVENTS)
-                    .put("today", DAY_EVENTS)
-                    .put("hourly", HOUR_EVENTS)
-                    .put("now", MINUTE_EVENTS);
+                    .put("total", getEvents(Window.TOTAL))
+                    .put("today", getEvents(Window.DAY))
+                    .put("hourly", getEvents(Window.HOUR))
+                    .put("now", getEvents(Window.MINUTE));
 
             JSONObject toPost = new JSONObject()
                     .put("nodeid", bot.getMantaroAPI().nodeId)
@@ -130,7 +130,7 @@ public class MantaroAPISender {
                         .header("Authorization", sessionToken)
                         .post(body)
                         .build();
-                httpClient.newCall(identify).execute().close();
+                HTTPRequester.PARENT.newCall(identify).execute().close();
             } catch(Exception e) {
                 e.printStackTrace();
             }